@@ -0,0 +1,67 @@
+package com.ioiometer;
+
+/**
+ * Constants of the binary capture format, which stores samples of several pins about 4 times smaller than CSV
+ * and can be read through a memory mapping without parsing (see {@link CaptureWriter} and {@link CaptureReader}).
+ *
+ * All numbers are big-endian. The file consists of a header and fixed-width blocks of {@link #BLOCK_ROWS} rows:
+ * <pre>
+ * Header:
+ *   int     MAGIC
+ *   short   VERSION
+ *   int     number of rows
+ *   short   number of channels (n)
+ *   double  sample interval in s, 0 if unknown
+ *   float   reference voltage of the ADC
+ *   n times short minimum raw value, short maximum raw value
+ *   n times int pin number, int color, short length of description, UTF-8 bytes of description
+ * Blocks:
+ *   double[BLOCK_ROWS]      time stamps in s
+ *   n times short[BLOCK_ROWS] raw 10-bit ADC values
+ * </pre>
+ * The last block is padded to the full width, so the position of every value can be calculated from its index.
+ * Missing values (NaN, e. g. of pins that were not sampled) are stored as {@link #NO_VALUE_RAW} and left out of
+ * the value range, which is empty (minimum greater than maximum) if a channel has no values at all.
+ *
+ * @author Johannes Rieke
+ */
+public abstract class CaptureFile {
+
+    public static final String EXTENSION = ".ioiocap";
+
+    public static final int MAGIC = 0x494f4350;  // "IOCP"
+    public static final short VERSION = 1;
+
+    public static final int BLOCK_ROWS = 4096;
+    /** The maximum raw value of the 10-bit ADC, which corresponds to the reference voltage. */
+    public static final int MAX_RAW = 1023;
+    /** The raw value that stands for a missing value (NaN). */
+    public static final short NO_VALUE_RAW = -1;
+
+    // Offsets of the header fields that are written when the file is closed.
+    static final int ROW_COUNT_OFFSET = 6;
+    static final int RANGE_OFFSET = 24;
+
+    /**
+     * @return The size of a block in bytes
+     */
+    static int getBlockSize(int numChannels) {
+        return BLOCK_ROWS * (8 + 2 * numChannels);
+    }
+
+    /**
+     * Convert a voltage to the raw value that the ADC measured, or to {@link #NO_VALUE_RAW} if it is NaN.
+     */
+    static short toRaw(double voltage, float reference) {
+        if (Double.isNaN(voltage))
+            return NO_VALUE_RAW;
+        long raw = Math.round(voltage / reference * MAX_RAW);
+        return (short) Math.max(0, Math.min(MAX_RAW, raw));
+    }
+
+    static double toVoltage(int raw, float reference) {
+        if (raw == NO_VALUE_RAW)
+            return Double.NaN;
+        return raw * reference / MAX_RAW;
+    }
+}
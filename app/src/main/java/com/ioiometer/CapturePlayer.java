@@ -0,0 +1,139 @@
+package com.ioiometer;
+
+import android.util.Log;
+
+import org.achartengine.model.MultiChannelXYStore;
+
+/**
+ * Background thread that plays a capture back by adding its samples to a store, just like the measurement does,
+ * so they go through the same plotting path as live data.
+ *
+ * The samples are added in real time (scaled by the speed), or as fast as possible with {@link #MAX_SPEED}. The
+ * latter is useful to benchmark the plots with a reproducible load, even without an IOIO.
+ *
+ * @author Johannes Rieke
+ */
+public class CapturePlayer extends Thread {
+
+    private final static String D = "MyDebug@CapturePlayer";
+
+    /** Play the capture as fast as possible. */
+    public final static double MAX_SPEED = 0;
+
+    private final static long PLAYBACK_INTERVAL = 20;  // ms
+    /** Rows that are added at once when playing as fast as possible. */
+    private final static int MAX_SPEED_BATCH_ROWS = 500;
+
+    public interface Listener {
+
+        /**
+         * Called on the player thread after some rows were added.
+         * @param time The time of the last added row
+         */
+        public void onSamplesPlayed(double time);
+
+        /**
+         * Called on the player thread when all rows were added. Not called if the playback was stopped.
+         * @param rows The number of rows that were added
+         * @param duration The duration of the playback in ms
+         */
+        public void onPlaybackFinished(int rows, long duration);
+    }
+
+    private final CaptureReader capture;
+    private final MultiChannelXYStore target;
+    private final int[] targetChannels;
+    private final double speed;
+    private final Listener listener;
+
+    private volatile boolean stopped = false;
+
+    /**
+     * @param capture The capture to play
+     * @param target The store to add the samples to
+     * @param pinNumbers The pin number of each channel of the store. Channels of pins that were not captured get NaN.
+     * @param speed The factor by which the playback is faster than real time, or {@link #MAX_SPEED}
+     * @param listener Is informed about the progress
+     */
+    public CapturePlayer(CaptureReader capture, MultiChannelXYStore target, int[] pinNumbers, double speed,
+                         Listener listener) {
+        super("CapturePlayer");
+        this.capture = capture;
+        this.target = target;
+        this.speed = speed;
+        this.listener = listener;
+
+        targetChannels = new int[pinNumbers.length];
+        for (int i = 0; i < pinNumbers.length; i++)
+            targetChannels[i] = capture.getChannel(pinNumbers[i]);
+    }
+
+    /**
+     * Stop the playback and wait until the player thread has ended, so no more rows are added and the listener is
+     * not called anymore afterwards. The rows that were added so far stay in the store.
+     */
+    public void stopPlayback() {
+        stopped = true;
+        interrupt();
+        if (Thread.currentThread() == this)
+            return;
+        boolean interrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    @Override
+    public void run() {
+        int numRows = capture.getItemCount();
+        double[] values = new double[targetChannels.length];
+        long startTime = System.nanoTime();
+        double startX = (numRows > 0) ? capture.getX(0) : 0;
+
+        int index = 0;
+        try {
+            while (index < numRows && !stopped) {
+                // Add all rows that are due.
+                int start = index;
+                int end;
+                if (speed == MAX_SPEED) {
+                    end = Math.min(numRows, index + MAX_SPEED_BATCH_ROWS);
+                } else {
+                    double now = startX + (System.nanoTime() - startTime) / 1000000000. * speed;
+                    end = Math.max(index, capture.lowerBound(now));
+                }
+
+                for (; index < end && !stopped; index++) {
+                    for (int i = 0; i < targetChannels.length; i++) {
+                        int channel = targetChannels[i];
+                        values[i] = (channel == -1) ? Double.NaN : capture.getY(channel, index);
+                    }
+                    target.add(capture.getX(index), values);
+                }
+                if (stopped)
+                    return;
+                if (index > start)
+                    listener.onSamplesPlayed(capture.getX(index - 1));
+
+                if (speed == MAX_SPEED)
+                    Thread.yield();
+                else
+                    Thread.sleep(PLAYBACK_INTERVAL);
+            }
+        } catch (InterruptedException e) {
+            // Stopped.
+        }
+        if (stopped)
+            return;
+
+        long duration = (System.nanoTime() - startTime) / 1000000;
+        Log.d(D, "Played " + index + " rows in " + duration + " ms");
+        listener.onPlaybackFinished(index, duration);
+    }
+}
@@ -0,0 +1,227 @@
+package com.ioiometer;
+
+import org.achartengine.model.ChannelXYSeries;
+import org.achartengine.model.MultiChannelData;
+import org.achartengine.util.MathHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a binary capture file (see {@link CaptureFile} for the format) through a memory mapping.
+ *
+ * Only the header is parsed when the file is opened. The values are read from the mapping when they are accessed,
+ * so even captures with millions of samples can be plotted through the series returned by {@link #getSeries(int)}
+ * without loading them into memory. A capture can't be modified, so no locking is needed.
+ *
+ * @author Johannes Rieke
+ */
+public class CaptureReader implements MultiChannelData {
+
+    private final File file;
+    private final ByteBuffer buffer;
+
+    private final int rowCount;
+    private final int numChannels;
+    private final double sampleInterval;
+    private final float reference;
+
+    private final double[] minY;
+    private final double[] maxY;
+    private final int[] pinNumbers;
+    private final int[] colors;
+    private final String[] descriptions;
+
+    private final int dataOffset;
+    private final int blockSize;
+
+    private final ChannelXYSeries[] series;
+
+    /**
+     * Map the file and read its header.
+     * @throws IOException If the file can't be read or is not a capture file
+     */
+    public CaptureReader(File file) throws IOException {
+        this.file = file;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            // The mapping stays valid after the channel was closed.
+            buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+        } finally {
+            randomAccessFile.close();
+        }
+
+        try {
+            if (buffer.getInt() != CaptureFile.MAGIC)
+                throw new IOException("Not a capture file: " + file);
+            short version = buffer.getShort();
+            if (version != CaptureFile.VERSION)
+                throw new IOException("Unsupported capture version " + version + ": " + file);
+
+            rowCount = buffer.getInt();
+            numChannels = buffer.getShort();
+            sampleInterval = buffer.getDouble();
+            reference = buffer.getFloat();
+
+            minY = new double[numChannels];
+            maxY = new double[numChannels];
+            for (int c = 0; c < numChannels; c++) {
+                short minRaw = buffer.getShort();
+                short maxRaw = buffer.getShort();
+                // The range is empty if the channel has no values.
+                boolean empty = (rowCount == 0 || minRaw > maxRaw);
+                minY[c] = empty ? MathHelper.NULL_VALUE : CaptureFile.toVoltage(minRaw, reference);
+                maxY[c] = empty ? -MathHelper.NULL_VALUE : CaptureFile.toVoltage(maxRaw, reference);
+            }
+
+            pinNumbers = new int[numChannels];
+            colors = new int[numChannels];
+            descriptions = new String[numChannels];
+            for (int c = 0; c < numChannels; c++) {
+                pinNumbers[c] = buffer.getInt();
+                colors[c] = buffer.getInt();
+                byte[] description = new byte[buffer.getShort()];
+                buffer.get(description);
+                descriptions[c] = new String(description, "UTF-8");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated capture file: " + file);
+        }
+
+        dataOffset = buffer.position();
+        blockSize = CaptureFile.getBlockSize(numChannels);
+        long numBlocks = (rowCount + CaptureFile.BLOCK_ROWS - 1) / CaptureFile.BLOCK_ROWS;
+        if (dataOffset + numBlocks * blockSize > buffer.capacity())
+            throw new IOException("Truncated capture file: " + file);
+
+        series = new ChannelXYSeries[numChannels];
+        for (int c = 0; c < numChannels; c++)
+            series[c] = new ChannelXYSeries(this, c, String.valueOf(pinNumbers[c]));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return An XYSeries view on the voltages of 'channel'
+     */
+    public ChannelXYSeries getSeries(int channel) {
+        return series[channel];
+    }
+
+    /**
+     * @return The channel of the pin with 'pinNumber', or -1 if it was not captured
+     */
+    public int getChannel(int pinNumber) {
+        for (int c = 0; c < numChannels; c++) {
+            if (pinNumbers[c] == pinNumber)
+                return c;
+        }
+        return -1;
+    }
+
+    public int getPinNumber(int channel) {
+        return pinNumbers[channel];
+    }
+
+    public int getColor(int channel) {
+        return colors[channel];
+    }
+
+    public String getDescription(int channel) {
+        return descriptions[channel];
+    }
+
+    /**
+     * @return The interval between two samples in s, or 0 if it is unknown
+     */
+    public double getSampleInterval() {
+        return sampleInterval;
+    }
+
+    public float getReference() {
+        return reference;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return numChannels;
+    }
+
+    @Override
+    public int getItemCount() {
+        return rowCount;
+    }
+
+    @Override
+    public double getX(int index) {
+        int block = index / CaptureFile.BLOCK_ROWS;
+        int row = index - block * CaptureFile.BLOCK_ROWS;
+        return buffer.getDouble(dataOffset + block * blockSize + 8 * row);
+    }
+
+    /**
+     * @return The raw 10-bit ADC value of 'channel' at 'index', or {@link CaptureFile#NO_VALUE_RAW} if it is missing
+     */
+    public int getRaw(int channel, int index) {
+        int block = index / CaptureFile.BLOCK_ROWS;
+        int row = index - block * CaptureFile.BLOCK_ROWS;
+        return buffer.getShort(dataOffset + block * blockSize + 8 * CaptureFile.BLOCK_ROWS
+                + 2 * (channel * CaptureFile.BLOCK_ROWS + row));
+    }
+
+    /**
+     * @return The voltage of 'channel' at 'index', or NaN if it is missing
+     */
+    @Override
+    public double getY(int channel, int index) {
+        return CaptureFile.toVoltage(getRaw(channel, index), reference);
+    }
+
+    @Override
+    public double getMinX() {
+        return (rowCount == 0) ? MathHelper.NULL_VALUE : getX(0);
+    }
+
+    @Override
+    public double getMaxX() {
+        return (rowCount == 0) ? -MathHelper.NULL_VALUE : getX(rowCount - 1);
+    }
+
+    @Override
+    public double getMinY(int channel) {
+        return minY[channel];
+    }
+
+    @Override
+    public double getMaxY(int channel) {
+        return maxY[channel];
+    }
+
+    @Override
+    public int lowerBound(double x) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getX(mid) < x)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    @Override
+    public int getIndexForKey(double x) {
+        int index = lowerBound(x);
+        if (index < rowCount && getX(index) == x)
+            return index;
+        return -index - 1;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ioiometer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes samples of several pins to a binary capture file (see {@link CaptureFile} for the format).
+ *
+ * Rows are collected in a buffer of one block, which is written to the file when it is full. The number of rows and
+ * the value range in the header are written when the file is closed.
+ *
+ * @author Johannes Rieke
+ */
+public class CaptureWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final int numChannels;
+    private final float reference;
+
+    private final ByteBuffer block;
+    private int blockRows = 0;
+    private int rowCount = 0;
+
+    private final short[] minRaw;
+    private final short[] maxRaw;
+
+    /**
+     * Create the file and write the header.
+     * @param file The file to write to, it is overwritten if it exists
+     * @param pins The pins whose voltages will be written, in the order of the values passed to {@link #add}
+     * @param sampleInterval The interval between two samples in s, or 0 if it is unknown
+     * @param reference The reference voltage of the ADC
+     */
+    public CaptureWriter(File file, Pin[] pins, double sampleInterval, float reference) throws IOException {
+        numChannels = pins.length;
+        this.reference = reference;
+        minRaw = new short[numChannels];
+        maxRaw = new short[numChannels];
+        for (int c = 0; c < numChannels; c++) {
+            minRaw[c] = CaptureFile.MAX_RAW;
+            maxRaw[c] = 0;
+        }
+
+        byte[][] descriptions = new byte[numChannels][];
+        int headerSize = CaptureFile.RANGE_OFFSET + 4 * numChannels;
+        for (int c = 0; c < numChannels; c++) {
+            descriptions[c] = (pins[c].description == null) ? new byte[0] : pins[c].description.getBytes("UTF-8");
+            headerSize += 10 + descriptions[c].length;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(CaptureFile.MAGIC);
+        header.putShort(CaptureFile.VERSION);
+        header.putInt(0);  // Number of rows, written on close.
+        header.putShort((short) numChannels);
+        header.putDouble(sampleInterval);
+        header.putFloat(reference);
+        for (int c = 0; c < numChannels; c++)
+            header.putInt(0);  // Value range, written on close.
+        for (int c = 0; c < numChannels; c++) {
+            header.putInt(pins[c].number);
+            header.putInt(pins[c].color);
+            header.putShort((short) descriptions[c].length);
+            header.put(descriptions[c]);
+        }
+        header.flip();
+
+        channel = new FileOutputStream(file).getChannel();
+        try {
+            writeFully(header, 0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        block = ByteBuffer.allocate(CaptureFile.getBlockSize(numChannels));
+    }
+
+    /**
+     * Append a row.
+     * @param time The time in s, which must not be smaller than the last one
+     * @param voltages The voltages, one per pin
+     */
+    public void add(double time, double[] voltages) throws IOException {
+        block.putDouble(8 * blockRows, time);
+        int offset = 8 * CaptureFile.BLOCK_ROWS + 2 * blockRows;
+        for (int c = 0; c < numChannels; c++) {
+            short raw = CaptureFile.toRaw(voltages[c], reference);
+            block.putShort(offset, raw);
+            offset += 2 * CaptureFile.BLOCK_ROWS;
+
+            if (raw == CaptureFile.NO_VALUE_RAW)
+                continue;
+            if (raw < minRaw[c])
+                minRaw[c] = raw;
+            if (raw > maxRaw[c])
+                maxRaw[c] = raw;
+        }
+
+        blockRows++;
+        rowCount++;
+        if (blockRows == CaptureFile.BLOCK_ROWS)
+            writeBlock();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    private void writeBlock() throws IOException {
+        block.clear();
+        writeFully(block, channel.size());
+        blockRows = 0;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    /**
+     * Write the last block padded to the full width and the header fields that were left open, then close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockRows > 0)
+                writeBlock();
+
+            ByteBuffer count = ByteBuffer.allocate(4);
+            count.putInt(rowCount).flip();
+            writeFully(count, CaptureFile.ROW_COUNT_OFFSET);
+
+            ByteBuffer ranges = ByteBuffer.allocate(4 * numChannels);
+            for (int c = 0; c < numChannels; c++)
+                ranges.putShort(minRaw[c]).putShort(maxRaw[c]);
+            ranges.flip();
+            writeFully(ranges, CaptureFile.RANGE_OFFSET);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.ioiometer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes comma separated values to a file channel.
+ *
+ * Numbers are formatted directly into a byte buffer, which is written to the channel whenever it is full, so no
+ * intermediate Strings are created and the memory usage doesn't depend on the size of the file.
+ * Values are written with up to {@link #DECIMALS} decimals, trailing zeros are removed.
+ *
+ * @author Johannes Rieke
+ */
+public class CsvWriter implements Closeable {
+
+    public static final int DECIMALS = 6;
+    private static final long SCALE = 1000000;  // 10^DECIMALS
+    /** Values above this are written with Double.toString because they would overflow the scaled long. */
+    private static final double MAX_FIXED_VALUE = 1e12;
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /** Enough space for any single value or separator, so a value never has to be split across two chunks. */
+    private static final int MAX_VALUE_LENGTH = 32;
+
+    private final FileChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    private int position = 0;
+    private long bytesWritten = 0;
+    private boolean rowStarted = false;
+    private boolean firstRow = true;
+
+    public CsvWriter(FileChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(FileChannel channel, int bufferSize) {
+        this.channel = channel;
+        buffer = new byte[Math.max(bufferSize, 2 * MAX_VALUE_LENGTH)];
+        byteBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * @return The number of bytes that were written to the channel so far, not including the buffered ones
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * @return The number of bytes that were written to the channel or are still in the buffer
+     */
+    public long getBytesTotal() {
+        return bytesWritten + position;
+    }
+
+    /**
+     * Start a new row. Rows are separated by "\n", there is no newline after the last row.
+     */
+    public void startRow() throws IOException {
+        ensureSpace(1);
+        if (!firstRow)
+            buffer[position++] = '\n';
+        firstRow = false;
+        rowStarted = false;
+    }
+
+    /**
+     * Write a text field, which must only contain ASCII characters.
+     */
+    public void writeField(String text) throws IOException {
+        ensureSpace(1);
+        writeSeparator();
+        writeAscii(text);
+    }
+
+    public void writeField(double value) throws IOException {
+        ensureSpace(MAX_VALUE_LENGTH);
+        writeSeparator();
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED_VALUE) {
+            writeAscii(Double.toString(value));  // Rare, so allocating here is fine.
+        } else if (value < 0) {
+            long scaled = Math.round(-value * SCALE);
+            // Values that round to 0 are written without a sign.
+            if (scaled != 0)
+                buffer[position++] = '-';
+            writeScaled(scaled);
+        } else {
+            writeScaled(Math.round(value * SCALE));
+        }
+    }
+
+    private void writeSeparator() {
+        if (rowStarted)
+            buffer[position++] = ',';
+        rowStarted = true;
+    }
+
+    private void writeAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensureSpace(1);
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * Write 'scaled' / SCALE with at least one and at most DECIMALS decimals.
+     */
+    private void writeScaled(long scaled) {
+        writeDigits(scaled / SCALE, 1);
+        buffer[position++] = '.';
+
+        long fraction = scaled % SCALE;
+        int decimals = DECIMALS;
+        while (decimals > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+        writeDigits(fraction, decimals);
+    }
+
+    /**
+     * Write the decimal digits of a non-negative number, padded with zeros to 'minDigits'.
+     */
+    private void writeDigits(long number, int minDigits) {
+        int length = 1;
+        for (long rest = number / 10; rest > 0; rest /= 10)
+            length++;
+        length = Math.max(length, minDigits);
+
+        int end = position + length;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + number % 10);
+            number /= 10;
+        }
+        position = end;
+    }
+
+    private void ensureSpace(int length) throws IOException {
+        if (buffer.length - position < length + 1)
+            flush();
+    }
+
+    /**
+     * Write the buffered bytes to the channel.
+     */
+    public void flush() throws IOException {
+        byteBuffer.clear();
+        byteBuffer.limit(position);
+        while (byteBuffer.hasRemaining())
+            channel.write(byteBuffer);
+        bytesWritten += position;
+        position = 0;
+    }
+
+    /**
+     * Flush the buffered bytes and close the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.ioiometer;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends every measured row to a CSV file while the measurement is running, so the full history is preserved
+ * even after the samples were dropped from the in-memory store.
+ *
+ * Rows are collected in blocks on the measurement thread. A full block, or one that is older than
+ * {@link #FLUSH_INTERVAL}, is handed to a background thread that writes it to the file, so {@link #add} never
+ * waits for I/O. The blocks are recycled. If the background thread falls so far behind that no free block is left,
+ * rows are dropped and counted instead of blocking the measurement.
+ *
+ * @author Johannes Rieke
+ */
+public class DiskLogger {
+
+    private final static String D = "MyDebug@DiskLogger";
+
+    private final static int ROWS_PER_BLOCK = 512;
+    private final static int NUM_BLOCKS = 8;
+    private final static long FLUSH_INTERVAL = 1000;  // ms
+
+    private final File file;
+    private final int numChannels;
+    private final int rowLength;
+
+    private final BlockingQueue<double[]> freeBlocks = new ArrayBlockingQueue<double[]>(NUM_BLOCKS);
+    // One more slot for the block that signals the end.
+    private final BlockingQueue<double[]> fullBlocks = new ArrayBlockingQueue<double[]>(NUM_BLOCKS + 1);
+
+    // Only accessed while holding the lock of this object.
+    private double[] block;
+    private int blockPosition;
+    private long blockStartTime;  // ms
+    private boolean stopped = false;
+    private long droppedRows = 0;
+
+    private volatile long rowsWritten = 0;
+    private volatile IOException error;
+
+    private final Thread writerThread;
+
+    /**
+     * Create the file and write the header row. Call {@link #start()} to start the background writer, which also
+     * closes the file when {@link #stop()} is called.
+     * @param file The file to write to, it is overwritten if it exists
+     * @param titles The column titles, the first one for the x values and one for each channel
+     */
+    public DiskLogger(File file, String[] titles) throws IOException {
+        this.file = file;
+        numChannels = titles.length - 1;
+        rowLength = 1 + numChannels;
+
+        final CsvWriter writer = new CsvWriter(new FileOutputStream(file).getChannel());
+        try {
+            writer.startRow();
+            for (String title : titles)
+                writer.writeField(title);
+        } catch (IOException e) {
+            writer.close();
+            throw e;
+        }
+
+        // The first slot of each block holds its number of rows.
+        for (int i = 0; i < NUM_BLOCKS; i++)
+            freeBlocks.add(new double[1 + ROWS_PER_BLOCK * rowLength]);
+
+        writerThread = new Thread("DiskLogger") {
+            @Override
+            public void run() {
+                write(writer);
+            }
+        };
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Append a row. Called on the measurement thread, never blocks on I/O.
+     * @param x The x value (e. g. the time)
+     * @param values The y values, one per channel
+     */
+    public synchronized void add(double x, double[] values) {
+        if (stopped)
+            return;
+
+        if (block == null) {
+            block = freeBlocks.poll();
+            if (block == null) {
+                droppedRows++;
+                return;
+            }
+            blockPosition = 1;
+            blockStartTime = System.nanoTime() / 1000000;
+        }
+
+        block[blockPosition++] = x;
+        System.arraycopy(values, 0, block, blockPosition, numChannels);
+        blockPosition += numChannels;
+
+        if (blockPosition == block.length || System.nanoTime() / 1000000 - blockStartTime >= FLUSH_INTERVAL)
+            handOver();
+    }
+
+    /**
+     * Pass the current block to the writer thread.
+     */
+    private void handOver() {
+        block[0] = (blockPosition - 1) / rowLength;
+        fullBlocks.add(block);  // Never full, there are only NUM_BLOCKS blocks.
+        block = null;
+    }
+
+    /**
+     * Write the remaining rows, close the file and wait for the writer thread to finish.
+     * @throws IOException If writing failed at any time
+     */
+    public void stop() throws IOException {
+        synchronized (this) {
+            if (stopped)
+                return;
+            stopped = true;
+            if (block != null)
+                handOver();
+            fullBlocks.add(new double[] {-1});  // Signals the end.
+        }
+
+        if (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long dropped = getDroppedRows();
+        if (dropped > 0)
+            Log.w(D, dropped + " rows dropped");
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * @return The number of rows that were written to the file so far
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * @return The number of rows that were dropped because the file could not be written fast enough
+     */
+    public synchronized long getDroppedRows() {
+        return droppedRows;
+    }
+
+    /**
+     * Loop of the writer thread.
+     */
+    private void write(CsvWriter writer) {
+        try {
+            while (true) {
+                double[] full = fullBlocks.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+                if (full == null) {
+                    flushStaleBlock();
+                    continue;
+                }
+
+                int numRows = (int) full[0];
+                if (numRows < 0)
+                    break;
+
+                if (error == null) {
+                    try {
+                        int position = 1;
+                        for (int row = 0; row < numRows; row++) {
+                            writer.startRow();
+                            for (int i = 0; i < rowLength; i++)
+                                writer.writeField(full[position++]);
+                        }
+                        writer.flush();
+                        rowsWritten += numRows;
+                    } catch (IOException e) {
+                        Log.e(D, "Cannot write " + file, e);
+                        error = e;
+                    }
+                }
+                freeBlocks.add(full);
+            }
+        } catch (InterruptedException e) {
+            Log.w(D, "Interrupted", e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (error == null)
+                    error = e;
+            }
+        }
+    }
+
+    /**
+     * Hand over the current block if no row was added for a while (e. g. with long measurement intervals), so the
+     * file is up to date.
+     */
+    private synchronized void flushStaleBlock() {
+        if (block != null && System.nanoTime() / 1000000 - blockStartTime >= FLUSH_INTERVAL)
+            handOver();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ioiometer;
+
+/**
+ * Counts how late each scheduled sample was measured, in buckets that double in width: bucket 0 holds lateness
+ * below 1 ms, bucket i (i > 0) lateness from 2^(i-1) ms to below 2^i ms, and the last bucket everything above.
+ * Samples that were skipped because their deadline had already passed are counted separately.
+ *
+ * Filled by the measurement thread, can be queried from any thread. The measurement logs it with its lateness
+ * reports, so the distribution can be compared between devices and intervals.
+ *
+ * @author Johannes Rieke
+ */
+public class LatenessHistogram {
+
+    public final static int NUM_BUCKETS = 12;
+
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long skipped = 0;
+    private long maxLateness = 0;  // ns
+
+    /**
+     * Count a measured sample.
+     * @param lateness The time between its deadline and the start of the measurement in ns
+     */
+    public synchronized void add(long lateness) {
+        long ms = Math.max(0, lateness) / 1000000;
+        int bucket = 64 - Long.numberOfLeadingZeros(ms);  // 0 for 0 ms, i for 2^(i-1) <= ms < 2^i
+        counts[Math.min(bucket, NUM_BUCKETS - 1)]++;
+        maxLateness = Math.max(maxLateness, lateness);
+    }
+
+    public synchronized void addSkipped(int count) {
+        skipped += count;
+    }
+
+    /**
+     * @return The upper bound of 'bucket' in ms (exclusive), or Long.MAX_VALUE for the last bucket
+     */
+    public static long getUpperBound(int bucket) {
+        return (bucket == NUM_BUCKETS - 1) ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * @return A copy of the number of samples in each bucket
+     */
+    public synchronized long[] getCounts() {
+        return counts.clone();
+    }
+
+    public synchronized long getSampleCount() {
+        long total = 0;
+        for (long count : counts)
+            total += count;
+        return total;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * @return The largest lateness of any sample in ns
+     */
+    public synchronized long getMaxLateness() {
+        return maxLateness;
+    }
+
+    /**
+     * @return The non-empty buckets and the skipped samples, e. g. "<1 ms: 950, <2 ms: 40, >=1024 ms: 1, 3 skipped"
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            if (counts[i] == 0)
+                continue;
+            if (i == NUM_BUCKETS - 1)
+                text.append(">=").append(getUpperBound(i - 1));
+            else
+                text.append('<').append(getUpperBound(i));
+            text.append(" ms: ").append(counts[i]).append(", ");
+        }
+        return text.append(skipped).append(" skipped").toString();
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < NUM_BUCKETS; i++)
+            counts[i] = 0;
+        skipped = 0;
+        maxLateness = 0;
+    }
+}
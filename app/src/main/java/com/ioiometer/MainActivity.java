@@ -1,5 +1,9 @@
 package com.ioiometer;
 
+import android.app.Activity;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.SharedPreferences;
 import android.content.res.Configuration;
 import android.os.AsyncTask;
@@ -7,6 +11,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Parcelable;
 import android.text.format.Time;
 import android.util.Log;
@@ -27,23 +32,19 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 
-import ioio.lib.api.AnalogInput;
-import ioio.lib.api.DigitalOutput;
-import ioio.lib.api.IOIO;
-import ioio.lib.api.exception.ConnectionLostException;
-import ioio.lib.util.IOIOLooper;
-import ioio.lib.util.android.IOIOActivity;
+import org.achartengine.model.MultiChannelXYStore;
+import org.achartengine.model.XYSeries;
 
 
 /**
- * Main Activity that is invoked when the app starts.
+ * Main Activity that is invoked when the app starts. The measurement itself runs in {@link MeasurementService},
+ * which the activity binds to for plotting and controlling it.
  *
  * @author Johannes Rieke
  */
-public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeChangedListener {
+public class MainActivity extends Activity implements PinView.OnTimeRangeChangedListener, MeasurementService.Listener {
 
     private final static String D = "MyDebug@MainActivity";
 
@@ -61,9 +62,11 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
     public final static int LAST_PIN_NUMBER = 42;
     protected final int numPins = LAST_PIN_NUMBER - FIRST_PIN_NUMBER + 1;
     protected Pin[] pins;
+    protected MultiChannelXYStore samples;  // The service's store, null until it is bound.
 
-    protected double time = 0;  // s
-    private long lastMeasuredTime = -1;  // ns
+    private MeasurementService service;  // Null until it is bound.
+    // Shown by the pins until the service is bound.
+    private final XYSeries emptySeries = new XYSeries("");
 
     private double timeRangeMin;
     private double timeRangeMax;
@@ -80,6 +83,13 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
     private MeasurementUnit measurementUnit;
     private final static MeasurementUnit DEFAULT_MEASUREMENT_UNIT = MeasurementUnit.MS;
 
+    // In high rate mode every analog frame of the IOIO (1 kHz) is read instead of polling the pins in
+    // measurementInterval.
+    private boolean highRate;
+
+    private final static float ANALOG_REFERENCE = 3.3f;  // V, the reference voltage of the IOIO's ADC
+    private final static double FAST_PLAYBACK_SPEED = 10;
+
     private int numDatapoints;
     private final static int MIN_NUM_DATAPOINTS = 1000;
     private final static int MAX_NUM_DATAPOINTS = 10000;
@@ -92,6 +102,11 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
 
     private MenuItem menuItemStartPause;
     private MenuItem menuItemShowSettings;
+    private MenuItem menuItemHighRate;
+    private MenuItem menuItemRecord;
+
+    // The capture file that is shown instead of the measured samples, or null.
+    private CaptureReader shownCapture;
 
     private ProgressBar mainProgressBar;
 
@@ -125,32 +140,26 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
     //
     private final static int VIEW_DATA_POINTS_STEP  = 20;
 
-    // A separate thread which steadily updates the graphs in the current view if not paused.
-    Thread uiThread = new Thread() {
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
         @Override
-        public void run() {
-            while (true) {
-
-                // Loop here while paused.
-                while (paused) {
-                    try {
-                        Thread.sleep(200);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
-
-                currentView.onPinSeriesDataChanged();
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            onServiceBound(((MeasurementService.LocalBinder) binder).getService());
+        }
 
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            service = null;
         }
     };
 
+    // Repaints the graphs in the current view at most once per display frame when new samples arrived.
+    private final RepaintScheduler repaintScheduler = new RepaintScheduler(new Runnable() {
+        @Override
+        public void run() {
+            currentView.onPinSeriesDataChanged();
+        }
+    });
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -186,9 +195,11 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
             }
         }
 
+        for (int i = 0; i < numPins; i++)
+            pins[i].series = emptySeries;
+
         if (savedInstanceState != null) {
             timeRangeMin = savedInstanceState.getDouble("time_range_min", 0);
-            time = savedInstanceState.getDouble("time", 0);
         }
         else {
             timeRangeMin = 0;
@@ -199,12 +210,16 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         measurementInterval = preferences.getInt("measurement_interval", DEFAULT_MEASUREMENT_INTERVAL);
         measurementUnit = MeasurementUnit.fromString(preferences.getString("measurement_unit", DEFAULT_MEASUREMENT_UNIT.toString()));
         numDatapoints = preferences.getInt("num_datapoints", DEFAULT_NUM_DATAPOINTS);
+        highRate = preferences.getBoolean("high_rate", false);
         setMaxDatapoints(numDatapoints);
         viewMode = preferences.getInt("view_mode", VIEW_MODE_SINGLE);
 
         initUi();
-        uiThread.start();
 
+        // Started as well as bound, so the measurement goes on without the activity.
+        Intent intent = new Intent(this, MeasurementService.class);
+        startService(intent);
+        bindService(intent, serviceConnection, BIND_AUTO_CREATE);
 
         /**
          *  Create progress bar below the action bar.
@@ -317,12 +332,20 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
             }
         });
 
+        setIntervalControlsEnabled(!highRate);
         onMeasurementIntervalChange();
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        repaintScheduler.start();
+    }
+
     @Override
     protected void onPause() {
         super.onPause();
+        repaintScheduler.stop();
 
         // Store preferences.
         SharedPreferences.Editor editor = preferences.edit();
@@ -330,6 +353,7 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
                 .putInt("measurement_interval", measurementInterval)
                 .putString("measurement_unit", measurementUnit.toString())
                 .putInt("num_datapoints", numDatapoints)
+                .putBoolean("high_rate", highRate)
                 .putLong("time_range", Double.doubleToRawLongBits(timeRangeMax - timeRangeMin))
                 .putBoolean("settings_visible", settingsVisible);
 
@@ -344,11 +368,67 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         editor.commit();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (service != null) {
+            service.setListener(null);
+            // Keep the service running if it measures or records.
+            if (isFinishing() && service.isPaused() && !service.isRecording())
+                stopService(new Intent(this, MeasurementService.class));
+            service = null;
+        }
+        unbindService(serviceConnection);
+    }
+
+    /**
+     * Called when the service is bound. Shows its samples and takes over its state, so a measurement that went on
+     * without the activity is shown right away.
+     */
+    private void onServiceBound(MeasurementService service) {
+        this.service = service;
+        samples = service.getSamples();
+        service.setPins(pins);
+        service.setListener(this);
+        service.setHighRate(highRate);
+        setMaxDatapoints(numDatapoints);
+
+        ioioConnected = service.isConnected();
+        paused = service.isPaused();
+        pausedBefore = paused;
+        updateStartPauseItem();
+        if (menuItemRecord != null)
+            menuItemRecord.setChecked(service.isRecording());
+
+        if (shownCapture == null) {
+            for (int i = 0; i < numPins; i++)
+                pins[i].series = samples.getSeries(i);
+        }
+        onMeasurementIntervalChange();  // Moves the time range to the current time.
+        if (currentView != null) {
+            currentView.onPinMetaDataChanged();
+            currentView.onPinSeriesDataChanged();
+        }
+    }
+
+    /**
+     * @return The time of the last sample in s
+     */
+    private double getTime() {
+        return (service == null) ? 0 : service.getTime();
+    }
+
+    /**
+     * @return True if the service records to a file
+     */
+    private boolean isRecording() {
+        return service != null && service.isRecording();
+    }
+
     private void setMaxDatapoints(int numDatapoints) {
         this.numDatapoints = numDatapoints;
-        for (Pin pin : pins) {
-            pin.setMaxDatapoints(numDatapoints);
-        }
+        if (samples != null)
+            samples.setFixedLength(numDatapoints);
     }
 
     private void setMeasurementInterval(int measurementInterval) {
@@ -361,6 +441,75 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         onMeasurementIntervalChange();
     }
 
+    /**
+     * Switch between polling the pins in measurementInterval and reading every analog frame of the IOIO.
+     * @param highRate True to read every frame (1 kHz)
+     */
+    public void setHighRate(boolean highRate) {
+        this.highRate = highRate;
+        if (service != null)
+            service.setHighRate(highRate);
+        if (menuItemHighRate != null)
+            menuItemHighRate.setChecked(highRate);
+        setIntervalControlsEnabled(!highRate);
+        onMeasurementIntervalChange();
+    }
+
+    /**
+     * Start or stop appending every measured row to a CSV file in the folder IOIO Meter. The plots keep showing
+     * only the last numDatapoints rows, but the file holds the full history of the recording.
+     * @param recording True to start a new recording, false to stop the current one
+     */
+    public void setRecording(boolean recording) {
+        if (service == null)
+            return;
+        if (recording && !service.isRecording()) {
+            if (!Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
+                showToast("Cannot access external storage");
+                return;
+            }
+            File directory = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/IOIO Meter/");
+            directory.mkdirs();  // Create directories if not present.
+            if (!directory.isDirectory()) {
+                showToast("Cannot create directory");
+                return;
+            }
+
+            Time now = new Time();
+            now.setToNow();
+            File file = new File(directory, now.format("%Y-%m-%d_%H-%M-%S") + "_recording.csv");
+
+            String[] titles = new String[1 + numPins];
+            titles[0] = "time/s";
+            for (int i = 0; i < numPins; i++)
+                titles[1 + i] = "v" + pins[i].number + "/V";
+
+            try {
+                DiskLogger logger = new DiskLogger(file, titles);
+                logger.start();
+                service.startRecording(logger);
+                showToast("Recording to folder IOIO Meter");
+            } catch (IOException e) {
+                e.printStackTrace();
+                showToast("Cannot create file");
+            }
+        } else if (!recording && service.isRecording()) {
+            // Writing the remaining rows may take a moment, so do it in the background.
+            new StopRecordingTask().execute(service.stopRecording());
+        }
+
+        if (menuItemRecord != null)
+            menuItemRecord.setChecked(service.isRecording());
+    }
+
+    /**
+     * Enable or disable the views that set the measurement interval.
+     */
+    private void setIntervalControlsEnabled(boolean enabled) {
+        findViewById(R.id.seek_bar_measurement_interval).setEnabled(enabled);
+        findViewById(R.id.seek_bar_measurement_unit).setEnabled(enabled);
+    }
+
     @Override
     public void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
@@ -398,7 +547,6 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         super.onSaveInstanceState(outState);
         outState.putParcelableArray("pins", pins);
         outState.putDouble("time_range_min", timeRangeMin);
-        outState.putDouble("time", time);
     }
 
 
@@ -445,19 +593,12 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
 
         if (paused || ioioConnected) {  // Do not start if IOIO is not connected.
             this.paused = paused;
+            if (service != null)
+                service.setPaused(paused);  // Also stops a playback when starting.
 
-            if (paused) {
-                if (menuItemStartPause != null) {
-                    menuItemStartPause.setIcon(getResources().getDrawable(R.drawable.ic_menu_start));
-                    menuItemStartPause.setTitle("Start");
-                }
-                lastMeasuredTime = -1;
-            } else {
-                if (menuItemStartPause != null) {
-                    menuItemStartPause.setIcon(getResources().getDrawable(R.drawable.ic_menu_pause));
-                    menuItemStartPause.setTitle("Pause");
-                }
-            }
+            if (!paused)
+                showMeasuredSamples();
+            updateStartPauseItem();
             currentView.onPinSeriesDataChanged();
         } else {
             showToast("Not connected");
@@ -468,21 +609,128 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         setPaused(pausedBefore);
     }
 
+    /**
+     * Show the action of the start/pause item for the current state.
+     */
+    private void updateStartPauseItem() {
+        if (menuItemStartPause == null)
+            return;
+        if (paused) {
+            menuItemStartPause.setIcon(getResources().getDrawable(R.drawable.ic_menu_start));
+            menuItemStartPause.setTitle("Start");
+        } else {
+            menuItemStartPause.setIcon(getResources().getDrawable(R.drawable.ic_menu_pause));
+            menuItemStartPause.setTitle("Pause");
+        }
+    }
+
+    /**
+     * Show the samples of a capture file in the plots instead of the measured ones and pause the measurement.
+     * Pins that were not captured show no samples. Starting the measurement or clearing shows the measured samples
+     * again.
+     * @param capture The capture to show
+     */
+    public void showCapture(CaptureReader capture) {
+        stopPlayback();
+        setPaused(true);
+        shownCapture = capture;
+
+        XYSeries empty = new XYSeries("");
+        for (Pin pin : pins) {
+            int channel = capture.getChannel(pin.number);
+            pin.series = (channel == -1) ? empty : capture.getSeries(channel);
+        }
+
+        // Show the beginning of the capture with the current time range.
+        if (capture.getItemCount() > 0) {
+            double timeRange = timeRangeMax - timeRangeMin;
+            timeRangeMin = capture.getMinX();
+            timeRangeMax = timeRangeMin + timeRange;
+            currentView.onTimeRangeChanged(timeRangeMin, timeRangeMax);
+        }
+        currentView.onPinMetaDataChanged();
+        currentView.onPinSeriesDataChanged();
+    }
+
+    /**
+     * Replace the samples with the ones of a capture, which are added over time like measured samples. Pins that
+     * were not captured show no samples. Starting the measurement or clearing stops the playback.
+     * @param capture The capture to play
+     * @param speed The factor by which the playback is faster than real time, or CapturePlayer.MAX_SPEED
+     */
+    public void playCapture(CaptureReader capture, double speed) {
+        if (service == null)
+            return;
+        stopPlayback();
+        setPaused(true);
+        showMeasuredSamples();
+
+        int[] pinNumbers = new int[numPins];
+        for (int i = 0; i < numPins; i++)
+            pinNumbers[i] = pins[i].number;
+        service.playCapture(capture, pinNumbers, speed);
+
+        if (capture.getItemCount() > 0) {
+            double timeRange = timeRangeMax - timeRangeMin;
+            timeRangeMin = capture.getMinX();
+            timeRangeMax = timeRangeMin + timeRange;
+            currentView.onTimeRangeChanged(timeRangeMin, timeRangeMax);
+        }
+    }
+
+    @Override
+    public void onPlaybackFinished(int rows, long duration) {
+        currentView.onPinSeriesDataChanged();
+        showToast("Played " + rows + " samples in " + duration + " ms");
+    }
+
+    /**
+     * Stop playing a capture, the samples that were played so far are kept.
+     */
+    private void stopPlayback() {
+        if (service != null)
+            service.stopPlayback();
+    }
+
+    /**
+     * Show the measured samples again if a capture is shown.
+     */
+    private void showMeasuredSamples() {
+        if (shownCapture == null)
+            return;
+        shownCapture = null;
+
+        for (int i = 0; i < numPins; i++)
+            pins[i].series = (samples == null) ? emptySeries : samples.getSeries(i);
+        onMeasurementIntervalChange();  // Moves the time range back to the current time.
+        currentView.onPinMetaDataChanged();
+    }
+
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
         menuItemStartPause = menu.findItem(R.id.start_pause);
+        updateStartPauseItem();
         menuItemShowSettings = menu.findItem(R.id.show_settings);
         if (menuItemShowSettings != null)
             menuItemShowSettings.setChecked(settingsVisible);
+        menuItemHighRate = menu.findItem(R.id.high_rate);
+        if (menuItemHighRate != null)
+            menuItemHighRate.setChecked(highRate);
+        menuItemRecord = menu.findItem(R.id.record);
+        if (menuItemRecord != null)
+            menuItemRecord.setChecked(isRecording());
         return true;
     }
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
-        if (id == R.id.start_pause) {
+        if (samples == null && id != R.id.switch_view && id != R.id.show_settings) {
+            showToast("Not ready");
+            return true;
+        } else if (id == R.id.start_pause) {
             setPaused(!paused);
             return true;
         } else if (id == R.id.clear) {
@@ -500,142 +748,59 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
             now.setToNow();
             final String filename = now.format("%Y-%m-%d_%H-%M-%S") + ".csv";
 
-            // Save in AsyncTask to free the UI.
-            new SaveToCsvTask().execute(filename);
+            // Save a snapshot of the samples in AsyncTask to free the UI.
+            new SaveToCsvTask(samples.snapshot()).execute(filename);
 
             setPaused(pausedBefore);
+        } else if (id == R.id.save_capture) {
+            Time now = new Time();
+            now.setToNow();
+            final String filename = now.format("%Y-%m-%d_%H-%M-%S") + CaptureFile.EXTENSION;
+
+            // The IOIO samples every analog frame at 1 kHz in high rate mode.
+            double sampleInterval = highRate ? 0.001 : measurementInterval * measurementUnit.getMsMultiplier() / 1000.;
+            new SaveCaptureTask(samples.snapshot(), sampleInterval).execute(filename);
+            return true;
+        } else if (id == R.id.open_capture) {
+            new OpenCaptureTask(false, 0).execute();
+            return true;
+        } else if (id == R.id.play_capture_real_time) {
+            new OpenCaptureTask(true, 1).execute();
+            return true;
+        } else if (id == R.id.play_capture_fast) {
+            new OpenCaptureTask(true, FAST_PLAYBACK_SPEED).execute();
+            return true;
+        } else if (id == R.id.play_capture_max_speed) {
+            new OpenCaptureTask(true, CapturePlayer.MAX_SPEED).execute();
+            return true;
         } else if (id == R.id.show_settings) {
             setSettingsVisible(!settingsVisible);
             return true;
+        } else if (id == R.id.high_rate) {
+            setHighRate(!highRate);
+            return true;
+        } else if (id == R.id.record) {
+            setRecording(!isRecording());
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
     @Override
-    protected IOIOLooper createIOIOLooper() {
-        return new IOIOLooper() {
-
-            private AnalogInput[] analogPins;
-            private DigitalOutput led;  // Negative logic.
-
-            @Override
-            public void setup(IOIO ioio) throws ConnectionLostException {
-                led = ioio.openDigitalOutput(IOIO.LED_PIN, true);
-
-                // Open the analog pins that will be measured.
-                analogPins = new AnalogInput[numPins];
-                for (int i = 0; i < numPins; i++)
-                    analogPins[i] = ioio.openAnalogInput(FIRST_PIN_NUMBER + i);
-
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        onConnected();
-                    }
-                });
-            }
-
-            @Override
-            public void loop() throws ConnectionLostException, InterruptedException {
-                try {
-                    if (paused) {
-                        led.write(true);  // Turn led off during pause.
-
-                        // In "paused" state always sleeping a short while. Otherwise
-                        // we might go to sleep for hours.
-                        //
-                        Thread.sleep(100);
-                    }
-                    else {
-                        led.write(false);  // Turn led on during measurement.
-
-                        measure();
-
-                        // There does not seem to be an easy way to interrupt the sleep in this
-                        // IOIOLooper thread. Yet with sleep times in seconds or minutes we need
-                        // to do that when the user pauses or the interval changes.
-                        //
-                        long ms=measurementInterval * measurementUnit.getMsMultiplier();
-                        if(ms<=200) {
-                            Thread.sleep(ms);
-                        }
-                        else {
-                            long startTime=System.nanoTime()/1000000;
-
-                            while(!paused) {
-                                Thread.sleep(200);
-
-                                // Recalculating when we want to wake up, as
-                                // the interval might have changed while we slept.
-                                //
-                                long stopTime=startTime + measurementInterval * measurementUnit.getMsMultiplier();
-
-                                long curTime=System.nanoTime() / 1000000;
-
-                                if (curTime >= stopTime)
-                                    break;
-                            }
-
-                            /// Log.d(D,"Total slept: "+(System.nanoTime()/1000000-startTime)+"ms");
-
-                            if(paused)
-                                measure();
-                        }
-                    }
-                } catch (ConnectionLostException e) {
-                    // IOIOLib does not treat ConnectionLostException properly, so it's done here.
-                    disconnected();
-                }
-            }
-
-            private void measure() throws ConnectionLostException, InterruptedException {
-                // Measure time since the last measurement.
-                long measuredTime = System.nanoTime();
-                if (lastMeasuredTime != -1)
-                    time += (measuredTime - lastMeasuredTime) / 1000000000.;
-                lastMeasuredTime = measuredTime;
-
-                // Measure voltage.
-                for (int i = 0; i < numPins; i++)
-                    pins[i].addPointToSeries(time, analogPins[i].getVoltage());
-
-                onMeasurementFinished();
-            }
-
-            @Override
-            public void disconnected() {
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        onDisconnected();
-                    }
-                });
-            }
-
-            @Override
-            public void incompatible() {
-                runOnUiThread(new Runnable() {
-                    @Override
-                    public void run() {
-                        onIncompatibleFirmware();
-                    }
-                });
-            }
-        };
-    }
-
-    private void onConnected() {
+    public void onConnected() {
         ioioConnected = true;
         showToast("Connected");
     }
 
-    private void onDisconnected() {
+    @Override
+    public void onDisconnected() {
         setPaused(true);
         ioioConnected = false;
         showToast("Disconnected");
     }
 
-    private void onIncompatibleFirmware() {
+    @Override
+    public void onIncompatibleFirmware() {
         setPaused(true);
         ioioConnected = false;
         showToast("Incompatible Firmware");
@@ -647,6 +812,9 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
      * fit in our views.
      */
     private void onMeasurementIntervalChange() {
+        if (service != null)
+            service.setMeasurementPeriod(measurementInterval * measurementUnit.getMsMultiplier() * 1000000L);
+
         double curRange=timeRangeMax-timeRangeMin;
 
         double interval=((double)(measurementInterval * measurementUnit.msMultiplier))/1000D;
@@ -660,7 +828,7 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         double minOverhang=interval * VIEW_DATA_POINTS_STEP;
 
         synchronized (this) {
-            timeRangeMax=time + minOverhang;
+            timeRangeMax=getTime() + minOverhang;
             timeRangeMin=timeRangeMax - newRange;
             if(timeRangeMin<0) {
                 timeRangeMin=0;
@@ -675,7 +843,9 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
     /**
      * Called on the measurement thread when a measurement is complete.
      */
-    private void onMeasurementFinished() {
+    @Override
+    public void onMeasurementFinished() {
+        double time = getTime();
 
         // Careful with changing timeRange from UI and measurement
         // threads at the same time
@@ -697,6 +867,7 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
                 currentView.onTimeRangeChanged(timeRangeMin, timeRangeMax);
             }
         }
+        repaintScheduler.markDirty();
     }
 
     /**
@@ -719,11 +890,9 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
      */
     public void clear() {
         setPaused(true);
-        for (Pin pin : pins)
-            pin.clearSeries();
-
-        time = 0;
-        lastMeasuredTime = -1;
+        if (service != null)
+            service.clear();  // Also stops a playback.
+        showMeasuredSamples();
 
         // Set the time in the plots to 0 but keep their time range.
         double timeRange = timeRangeMax - timeRangeMin;
@@ -772,16 +941,188 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
         settingsVisible = visible;
     }
 
+    /**
+     * Asynchronous background task that saves time and voltage data of all pins to a binary capture file.
+     */
+    private class SaveCaptureTask extends AsyncTask<String, Integer, String> {
+
+        private final MultiChannelXYStore snapshot;
+        private final double sampleInterval;
+
+        /**
+         * @param snapshot A copy of the samples that is not modified while saving
+         * @param sampleInterval The interval between two samples in s
+         */
+        SaveCaptureTask(MultiChannelXYStore snapshot, double sampleInterval) {
+            this.snapshot = snapshot;
+            this.sampleInterval = sampleInterval;
+        }
+
+        @Override
+        protected String doInBackground(String... params) {
+            if (!Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED))
+                return "Cannot access external storage";
+            int numSteps = snapshot.getItemCount();
+            if (numSteps == 0)
+                return "Nothing to save";
+
+            File directory = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/IOIO Meter/");
+            directory.mkdirs();  // Create directories if not present.
+            if (!directory.isDirectory())
+                return "Cannot create directory";
+
+            File file = new File(directory, params[0]);
+            Log.d(D, file.getAbsolutePath());
+
+            CaptureWriter writer;
+            try {
+                writer = new CaptureWriter(file, pins, sampleInterval, ANALOG_REFERENCE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return "Cannot create file";
+            }
+
+            try {
+                double[] row = new double[snapshot.getChannelCount()];
+                for (int i = 0; i < numSteps; i++) {
+                    writer.add(snapshot.getRow(i, row), row);
+
+                    // Publish progress once per block.
+                    if (i % CaptureFile.BLOCK_ROWS == 0)
+                        publishProgress((int) (i / (float) numSteps * 100));
+                }
+                writer.close();
+                return "Saved in folder IOIO Meter";
+            } catch (IOException e) {
+                e.printStackTrace();
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+                return "Cannot write file";
+            }
+        }
+
+        @Override
+        protected void onPreExecute() {
+            mainProgressBar.setVisibility(View.VISIBLE);
+            mainProgressBar.setProgress(0);
+        }
+
+        @Override
+        protected void onPostExecute(String s) {
+            mainProgressBar.setVisibility(View.INVISIBLE);
+            showToast(s);
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            mainProgressBar.setProgress(values[0]);
+        }
+    }
+
+    /**
+     * Asynchronous background task that opens the newest capture file in the folder IOIO Meter and shows or plays it.
+     */
+    private class OpenCaptureTask extends AsyncTask<Void, Void, CaptureReader> {
+
+        private final boolean play;
+        private final double speed;
+        private String error;
+
+        /**
+         * @param play True to play the capture back, false to show all of it at once
+         * @param speed The playback speed, see {@link #playCapture}
+         */
+        OpenCaptureTask(boolean play, double speed) {
+            this.play = play;
+            this.speed = speed;
+        }
+
+        @Override
+        protected CaptureReader doInBackground(Void... params) {
+            File directory = new File(Environment.getExternalStorageDirectory().getAbsolutePath() + "/IOIO Meter/");
+            File[] files = directory.listFiles();
+            File newest = null;
+            if (files != null) {
+                for (File file : files) {
+                    boolean isCapture = file.getName().endsWith(CaptureFile.EXTENSION);
+                    if (isCapture && (newest == null || file.lastModified() > newest.lastModified()))
+                        newest = file;
+                }
+            }
+            if (newest == null) {
+                error = "No capture in folder IOIO Meter";
+                return null;
+            }
+
+            try {
+                return new CaptureReader(newest);
+            } catch (IOException e) {
+                e.printStackTrace();
+                error = "Cannot read file";
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(CaptureReader capture) {
+            if (capture == null) {
+                showToast(error);
+            } else if (play) {
+                playCapture(capture, speed);
+                showToast("Playing " + capture.getFile().getName());
+            } else {
+                showCapture(capture);
+                showToast("Showing " + capture.getFile().getName());
+            }
+        }
+    }
+
+    /**
+     * Asynchronous background task that stops a recording and waits until all rows are written.
+     */
+    private class StopRecordingTask extends AsyncTask<DiskLogger, Void, String> {
+
+        @Override
+        protected String doInBackground(DiskLogger... params) {
+            DiskLogger logger = params[0];
+            try {
+                logger.stop();
+            } catch (IOException e) {
+                e.printStackTrace();
+                return "Cannot write file";
+            }
+            if (logger.getDroppedRows() > 0)
+                return "Recording saved, " + logger.getDroppedRows() + " rows dropped";
+            return "Recording saved in folder IOIO Meter";
+        }
+
+        @Override
+        protected void onPostExecute(String s) {
+            showToast(s);
+        }
+    }
+
     /**
      * Asynchronous background task that saves time and voltage data of all pins to a CSV file.
      */
     private class SaveToCsvTask extends AsyncTask<String, Integer, String> {
 
+        private final MultiChannelXYStore snapshot;
+
+        /**
+         * @param snapshot A copy of the samples that is not modified while saving
+         */
+        SaveToCsvTask(MultiChannelXYStore snapshot) {
+            this.snapshot = snapshot;
+        }
+
         @Override
         protected String doInBackground(String... params) {
             if (Environment.getExternalStorageState().equals(Environment.MEDIA_MOUNTED)) {
-                // All pins have the same number of steps at the same time points.
-                int numSteps = pins[0].getNumSteps();
+                // All pins share the same time points in the sample store.
+                int numSteps = snapshot.getItemCount();
                 if (numSteps > 0) {
 
                     String externalStorage = Environment.getExternalStorageDirectory().getAbsolutePath();
@@ -793,39 +1134,46 @@ public class MainActivity extends IOIOActivity implements PinView.OnTimeRangeCha
                         File file = new File(externalStorage + "/IOIO Meter/", filename);
                         Log.d(D, file.getAbsolutePath());
 
-                        StringBuilder builder = new StringBuilder();
-                        builder.append("time/s");
-                        for (Pin pin : pins) {
-                            builder.append(",v").append(pin.number).append("/V");
-                        }
-                        builder.append("\n");
-
-                        for (int i = 0; i < numSteps; i++) {
-                            // TODO: Check that the time of all pins equals, throw error or show toast if not.
-                            builder.append(pins[0].getTime(i));
-                            for (Pin pin : pins) {
-                                builder.append(",").append(pin.getVoltage(i));
-                            }
-                            builder.append("\n");
-
-                            // Publish progress every few steps.
-                            if (i % 10 == 0)
-                                publishProgress((int)(i / (float)numSteps * 100));
+                        CsvWriter writer;
+                        try {
+                            writer = new CsvWriter(new FileOutputStream(file).getChannel());
+                        } catch (FileNotFoundException e) {
+                            e.printStackTrace();
+                            return "Cannot create file";
                         }
 
-                        // Remove trailing "\n".
-                        builder.deleteCharAt(builder.length()-1);
-
                         try {
-                            OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(file));
-                            writer.write(builder.toString());
+                            writer.startRow();
+                            writer.writeField("time/s");
+                            for (Pin pin : pins)
+                                writer.writeField("v" + pin.number + "/V");
+
+                            double[] row = new double[snapshot.getChannelCount()];
+                            long lastBytesWritten = 0;
+                            for (int i = 0; i < numSteps; i++) {
+                                writer.startRow();
+                                writer.writeField(snapshot.getRow(i, row));
+                                for (double voltage : row)
+                                    writer.writeField(voltage);
+
+                                // Publish progress whenever a chunk was written, estimating the file size from
+                                // the bytes per row so far.
+                                long bytesWritten = writer.getBytesWritten();
+                                if (bytesWritten != lastBytesWritten) {
+                                    lastBytesWritten = bytesWritten;
+                                    double estimatedSize = writer.getBytesTotal() / (double) (i + 1) * numSteps;
+                                    publishProgress((int) (bytesWritten / estimatedSize * 100));
+                                }
+                            }
+                            // Writes the last chunk.
                             writer.close();
                             return "Saved in folder IOIO Meter";
-                        } catch (FileNotFoundException e) {
-                            e.printStackTrace();
-                            return "Cannot create file";
                         } catch (IOException e) {
                             e.printStackTrace();
+                            try {
+                                writer.close();
+                            } catch (IOException ignored) {
+                            }
                             return "Cannot write file";
                         }
                     } else {
@@ -0,0 +1,765 @@
+package com.ioiometer;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.PowerManager;
+import android.support.v4.app.NotificationCompat;
+import android.util.Log;
+import android.widget.Toast;
+
+import ioio.lib.api.AnalogInput;
+import ioio.lib.api.DigitalOutput;
+import ioio.lib.api.IOIO;
+import ioio.lib.api.PinSet;
+import ioio.lib.api.exception.ConnectionLostException;
+import ioio.lib.util.IOIOLooper;
+import ioio.lib.util.android.IOIOService;
+
+import org.achartengine.model.MultiChannelXYStore;
+
+import java.io.IOException;
+
+/**
+ * Service that holds the connection to the IOIO, measures the analog pins and keeps the samples, so the measurement
+ * goes on while the activity is in the background or recreated. It runs in the foreground with a notification and
+ * keeps the CPU awake while it measures or records.
+ *
+ * MainActivity binds to it, plots the series of {@link #getSamples()} and controls the measurement. The store lives
+ * as long as the service, so a new activity shows the samples right away.
+ *
+ * @author Johannes Rieke
+ */
+public class MeasurementService extends IOIOService {
+
+    private final static String D = "MyDebug@MeasurementService";
+
+    private final static int NOTIFICATION_ID = 1;
+
+    // In high rate mode every analog frame of the IOIO (1 kHz) is read from the pins' buffers instead of polling
+    // the pins in the measurement period.
+    private final static int HIGH_RATE_BUFFER_CAPACITY = 1000;  // samples per pin
+    private final static long HIGH_RATE_POLL_INTERVAL = 20;  // ms
+    private final static long DROPPED_SAMPLES_REPORT_INTERVAL = 2000;  // ms
+
+    // Samples measured later than this after their scheduled time are reported.
+    private final static long MAX_LATENESS = 10000000;  // ns
+    // Above this difference between the IOIO's sample clock and the host clock, the host clock is used.
+    private final static double MAX_CLOCK_DEVIATION = 0.5;  // s
+
+    private final static int FIRST_PIN_NUMBER = MainActivity.FIRST_PIN_NUMBER;
+    private final static int numPins = MainActivity.LAST_PIN_NUMBER - FIRST_PIN_NUMBER + 1;
+
+    /**
+     * Informs the activity about the measurement.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the UI thread when the IOIO was connected.
+         */
+        public void onConnected();
+
+        /**
+         * Called on the UI thread when the connection to the IOIO was lost. The measurement is paused.
+         */
+        public void onDisconnected();
+
+        /**
+         * Called on the UI thread when the IOIO's firmware is not supported. The measurement is paused.
+         */
+        public void onIncompatibleFirmware();
+
+        /**
+         * Called on the measurement or playback thread after samples were added to the store.
+         */
+        public void onMeasurementFinished();
+
+        /**
+         * Called on the UI thread when a playback ended, see {@link CapturePlayer.Listener#onPlaybackFinished}.
+         */
+        public void onPlaybackFinished(int rows, long duration);
+    }
+
+    public class LocalBinder extends Binder {
+        public MeasurementService getService() {
+            return MeasurementService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private Handler handler;
+    private PowerManager.WakeLock wakeLock;
+    private boolean foreground = false;
+
+    private volatile Listener listener;
+    private volatile Pin[] pins;  // Set by the activity, only their visibility is read.
+
+    private MultiChannelXYStore samples;  // One time column and one voltage column per pin.
+    private volatile double time = 0;  // s
+    private long lastMeasuredTime = -1;  // ns
+    private final LatenessHistogram latenessHistogram = new LatenessHistogram();
+
+    private volatile boolean connected = false;
+    private volatile boolean paused = true;
+    private volatile boolean highRate = false;
+    private volatile long measurementPeriod = 50000000;  // ns
+
+    // Wakes up the measurement thread while it waits for the next measurement.
+    private final Object scheduleLock = new Object();
+    // Counts the changes of the period or the paused state, guarded by scheduleLock.
+    private int scheduleChanges = 0;
+
+    // Appends every measured row to a file while recording.
+    private volatile DiskLogger logger;
+
+    // Plays a capture back into the samples while the measurement is paused, or null.
+    private volatile CapturePlayer player;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        handler = new Handler();
+        wakeLock = ((PowerManager) getSystemService(POWER_SERVICE)).newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, D);
+
+        String[] titles = new String[numPins];
+        for (int i = 0; i < numPins; i++)
+            titles[i] = String.valueOf(FIRST_PIN_NUMBER + i);
+        samples = new MultiChannelXYStore(titles);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        super.onStartCommand(intent, flags, startId);
+        // The samples are gone when the process was killed, so don't restart without the activity.
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        stopPlayback();
+        DiskLogger logger = stopRecording();
+        if (logger != null) {
+            try {
+                logger.stop();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        paused = true;
+        updateForeground();
+        super.onDestroy();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param pins The pins of the activity. Only the visible ones are sampled.
+     */
+    public void setPins(Pin[] pins) {
+        this.pins = pins;
+    }
+
+    /**
+     * @return The store the samples are added to. It lives as long as the service.
+     */
+    public MultiChannelXYStore getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return The time of the last sample in s
+     */
+    public double getTime() {
+        return time;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Pause or start the measurement.
+     * @return False if the measurement can't be started because the IOIO is not connected
+     */
+    public boolean setPaused(boolean paused) {
+        if (!paused && !connected)
+            return false;
+        this.paused = paused;
+        if (paused)
+            lastMeasuredTime = -1;
+        else
+            stopPlayback();
+        wakeUpMeasurement();
+        updateForeground();
+        return true;
+    }
+
+    /**
+     * Switch between polling the pins in the measurement period and reading every analog frame of the IOIO.
+     * @param highRate True to read every frame (1 kHz)
+     */
+    public void setHighRate(boolean highRate) {
+        this.highRate = highRate;
+    }
+
+    /**
+     * @param period The interval between two polled measurements in ns
+     */
+    public void setMeasurementPeriod(long period) {
+        measurementPeriod = period;
+        wakeUpMeasurement();
+    }
+
+    /**
+     * Append every measured row to 'logger' until {@link #stopRecording()} is called.
+     * @param logger A started logger
+     */
+    public void startRecording(DiskLogger logger) {
+        this.logger = logger;
+        updateForeground();
+    }
+
+    /**
+     * Stop appending rows to the current logger. The logger still has to be stopped, which may take a moment.
+     * @return The logger that was recording, or null
+     */
+    public DiskLogger stopRecording() {
+        DiskLogger logger = this.logger;
+        this.logger = null;
+        updateForeground();
+        return logger;
+    }
+
+    public boolean isRecording() {
+        return logger != null;
+    }
+
+    /**
+     * Remove all samples and start the time at 0.
+     */
+    public void clear() {
+        stopPlayback();
+        samples.clear();
+        latenessHistogram.clear();
+        time = 0;
+        lastMeasuredTime = -1;
+    }
+
+    /**
+     * Replace the samples with the ones of a capture, which are added over time like measured samples. The
+     * measurement must be paused.
+     * @param capture The capture to play
+     * @param pinNumbers The pin number of each channel of the store
+     * @param speed The factor by which the playback is faster than real time, or CapturePlayer.MAX_SPEED
+     */
+    public void playCapture(CaptureReader capture, int[] pinNumbers, double speed) {
+        stopPlayback();
+        samples.clear();
+        lastMeasuredTime = -1;
+        if (capture.getItemCount() > 0)
+            time = capture.getMinX();
+
+        player = new CapturePlayer(capture, samples, pinNumbers, speed, new CapturePlayer.Listener() {
+            @Override
+            public void onSamplesPlayed(double playedTime) {
+                time = playedTime;
+                notifyMeasurementFinished();
+            }
+
+            @Override
+            public void onPlaybackFinished(final int rows, final long duration) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Listener listener = MeasurementService.this.listener;
+                        if (listener != null)
+                            listener.onPlaybackFinished(rows, duration);
+                    }
+                });
+            }
+        });
+        player.start();
+    }
+
+    /**
+     * Stop playing a capture, the samples that were played so far are kept. Returns after the player has ended,
+     * so the store can be changed right away.
+     */
+    public void stopPlayback() {
+        CapturePlayer player = this.player;
+        if (player != null) {
+            player.stopPlayback();
+            this.player = null;
+        }
+    }
+
+    /**
+     * Wake up the measurement thread if it waits for the next measurement, so it notices changes of the
+     * period or the paused state right away.
+     */
+    private void wakeUpMeasurement() {
+        synchronized (scheduleLock) {
+            scheduleChanges++;
+            scheduleLock.notifyAll();
+        }
+    }
+
+    /**
+     * Run in the foreground and hold a wake lock while measuring or recording, so neither stops when the activity
+     * is left or the screen turns off.
+     */
+    private void updateForeground() {
+        boolean active = !paused || logger != null;
+        if (!active && !foreground)
+            return;
+
+        if (active) {
+            // Also updates the notification if already in the foreground.
+            Intent intent = new Intent(this, MainActivity.class);
+            intent.setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            Notification notification = new NotificationCompat.Builder(this)
+                    .setSmallIcon(R.drawable.ic_launcher)
+                    .setContentTitle(getString(R.string.app_name))
+                    .setContentText(paused ? "Recording" : "Measuring")
+                    .setContentIntent(PendingIntent.getActivity(this, 0, intent, 0))
+                    .setOngoing(true)
+                    .build();
+            startForeground(NOTIFICATION_ID, notification);
+            if (!foreground)
+                wakeLock.acquire();
+        } else {
+            wakeLock.release();
+            stopForeground(true);
+        }
+        foreground = active;
+    }
+
+    private void notifyMeasurementFinished() {
+        Listener listener = this.listener;
+        if (listener != null)
+            listener.onMeasurementFinished();
+    }
+
+    private void showToast(String text) {
+        Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
+    }
+
+    private void onConnected() {
+        connected = true;
+        Listener listener = this.listener;
+        if (listener != null)
+            listener.onConnected();
+    }
+
+    private void onDisconnected(boolean incompatible) {
+        setPaused(true);
+        connected = false;
+        Listener listener = this.listener;
+        if (listener == null)
+            return;
+        if (incompatible)
+            listener.onIncompatibleFirmware();
+        else
+            listener.onDisconnected();
+    }
+
+    /**
+     * @return True if the pin at 'index' should be sampled
+     */
+    private boolean isPinVisible(int index) {
+        Pin[] pins = this.pins;
+        return pins == null || pins[index].visible;
+    }
+
+    @Override
+    protected IOIOLooper createIOIOLooper() {
+        return new IOIOLooper() {
+
+            private AnalogInput[] analogPins;
+            private boolean[] sampling;  // Whether the IOIO samples each pin.
+            private int clockPin;  // The first sampled pin, whose sample index gives the time, or -1.
+            private double[] voltages = new double[numPins];
+            private DigitalOutput led;  // Negative logic.
+            private float sampleRate;  // Hz
+            private long lastSampleIndex;
+
+            // State of the high rate mode.
+            private boolean buffering = false;
+            private double bufferStartTime;  // s
+            private long bufferStartHostTime;  // ns
+            private long bufferStartIndex;
+            private int lastOverflowCount;
+            private int droppedSamples;
+            private long lastDroppedSamplesReport = 0;  // ms
+
+            // State of the scheduled measurement.
+            private long nextDeadline = -1;  // ns, -1 to start a new schedule
+            private long lastDeadline;  // ns
+            private long schedulePeriod;  // ns
+            private int seenScheduleChanges;  // The value of scheduleChanges when the state was last read.
+            private int lateSamples;
+            private int skippedSamples;
+            private long maxLateness;  // ns
+            private long lastLatenessReport = 0;  // ms
+
+            @Override
+            public void setup(IOIO ioio) throws ConnectionLostException, InterruptedException {
+                // Open the LED and the analog pins that will be measured in one round trip.
+                PinSet.Spec spec = new PinSet.Spec();
+                spec.addDigitalOutput(new DigitalOutput.Spec(IOIO.LED_PIN), true);
+                for (int i = 0; i < numPins; i++)
+                    spec.addAnalogInput(FIRST_PIN_NUMBER + i);
+                PinSet pinSet = ioio.openPinSet(spec);
+
+                led = pinSet.getDigitalOutput(IOIO.LED_PIN);
+                analogPins = new AnalogInput[numPins];
+                sampling = new boolean[numPins];
+                for (int i = 0; i < numPins; i++) {
+                    analogPins[i] = pinSet.getAnalogInput(FIRST_PIN_NUMBER + i);
+                    sampling[i] = true;
+                }
+                clockPin = 0;
+                sampleRate = analogPins[0].getSampleRate();
+
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onConnected();
+                    }
+                });
+            }
+
+            @Override
+            public void loop() throws ConnectionLostException, InterruptedException {
+                // Read the counter before the state, so waitForSchedule() notices changes made in between.
+                synchronized (scheduleLock) {
+                    seenScheduleChanges = scheduleChanges;
+                }
+                try {
+                    updateSampling();
+
+                    // Start or stop buffering every analog frame when the mode changes.
+                    boolean bufferingWanted = highRate && !paused;
+                    if (bufferingWanted && !buffering)
+                        startBuffering();
+                    else if (!bufferingWanted && buffering)
+                        stopBuffering();
+
+                    if (paused) {
+                        led.write(true);  // Turn led off during pause.
+                        nextDeadline = -1;
+
+                        // In "paused" state always sleeping a short while. Otherwise
+                        // we might go to sleep for hours.
+                        //
+                        waitForSchedule(100000000L);
+                    }
+                    else if (buffering) {
+                        led.write(false);  // Turn led on during measurement.
+
+                        if (measureBuffered() == 0)
+                            Thread.sleep(HIGH_RATE_POLL_INTERVAL);
+                    }
+                    else {
+                        led.write(false);  // Turn led on during measurement.
+                        measureScheduled();
+                    }
+                } catch (ConnectionLostException e) {
+                    // IOIOLib does not treat ConnectionLostException properly, so it's done here.
+                    disconnected();
+                }
+            }
+
+            /**
+             * Let the IOIO sample only the pins that are shown, so hidden pins don't take up bandwidth. The values
+             * of the other pins are NaN, which leaves a gap in their plots.
+             */
+            private void updateSampling() throws ConnectionLostException {
+                boolean changed = false;
+                for (int i = 0; i < numPins && !changed; i++)
+                    changed = (isPinVisible(i) != sampling[i]);
+                if (!changed)
+                    return;
+
+                // Restart buffering, so the buffered frames of all sampled pins are aligned again.
+                boolean wasBuffering = buffering;
+                if (wasBuffering)
+                    stopBuffering();
+
+                clockPin = -1;
+                for (int i = 0; i < numPins; i++) {
+                    boolean wanted = isPinVisible(i);
+                    if (wanted != sampling[i]) {
+                        analogPins[i].setSampling(wanted);
+                        sampling[i] = wanted;
+                    }
+                    if (wanted && clockPin == -1)
+                        clockPin = i;
+                }
+                // The sample index of another pin doesn't continue the old one.
+                lastSampleIndex = -1;
+
+                if (wasBuffering)
+                    startBuffering();
+            }
+
+            /**
+             * Measure at the deadlines start time + n * measurementPeriod, so the time needed for measuring
+             * doesn't add up. Waits until the next deadline otherwise, but wakes up when the period changes or
+             * the measurement is paused. Deadlines that have passed before the previous measurement finished are
+             * skipped, and late or skipped samples are reported.
+             */
+            private void measureScheduled() throws ConnectionLostException, InterruptedException {
+                long period = measurementPeriod;
+                long now = System.nanoTime();
+                if (nextDeadline == -1) {
+                    nextDeadline = now;
+                } else if (period != schedulePeriod) {
+                    // Continue the schedule from the last measurement with the new period.
+                    nextDeadline = lastDeadline + period;
+                }
+                schedulePeriod = period;
+
+                if (now < nextDeadline) {
+                    // Returns early on changes, loop() then checks the state again.
+                    waitForSchedule(nextDeadline - now);
+                    return;
+                }
+
+                measure();
+                long lateness = now - nextDeadline;
+                lastDeadline = nextDeadline;
+                nextDeadline += period;
+
+                long finished = System.nanoTime();
+                int skipped = 0;
+                if (nextDeadline <= finished) {
+                    skipped = (int) ((finished - nextDeadline) / period) + 1;
+                    nextDeadline += skipped * period;
+                }
+                latenessHistogram.add(lateness);
+                latenessHistogram.addSkipped(skipped);
+                if (lateness > MAX_LATENESS || skipped > 0)
+                    reportLateness(lateness, skipped);
+            }
+
+            /**
+             * Count samples that were measured too late or skipped, and show them at most every few seconds.
+             */
+            private void reportLateness(long lateness, int skipped) {
+                if (lateness > MAX_LATENESS)
+                    lateSamples++;
+                maxLateness = Math.max(maxLateness, lateness);
+                skippedSamples += skipped;
+
+                long now = System.nanoTime() / 1000000;
+                if (now - lastLatenessReport < DROPPED_SAMPLES_REPORT_INTERVAL)
+                    return;
+                lastLatenessReport = now;
+
+                final String text = lateSamples + " samples late (up to " + maxLateness / 1000000 + " ms), "
+                        + skippedSamples + " skipped";
+                Log.w(D, "Cannot keep up with the interval: " + text + ". Lateness since clearing: "
+                        + latenessHistogram);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        showToast(text);
+                    }
+                });
+                lateSamples = 0;
+                maxLateness = 0;
+                skippedSamples = 0;
+            }
+
+            /**
+             * Wait for 'ns' nanoseconds, or until {@link MeasurementService#wakeUpMeasurement()} is called. Returns
+             * right away if it was called since the current loop() read the state.
+             */
+            private void waitForSchedule(long ns) throws InterruptedException {
+                synchronized (scheduleLock) {
+                    if (scheduleChanges == seenScheduleChanges)
+                        scheduleLock.wait(ns / 1000000, (int) (ns % 1000000));
+                }
+            }
+
+            private void measure() throws ConnectionLostException, InterruptedException {
+                long measuredTime = System.nanoTime();
+
+                // Measure voltage.
+                for (int i = 0; i < numPins; i++)
+                    voltages[i] = sampling[i] ? analogPins[i].getVoltage() : Double.NaN;
+                long sampleIndex = (clockPin == -1) ? -1 : analogPins[clockPin].getSampleIndex();
+                long resumeIndex = (clockPin == -1) ? 0 : analogPins[clockPin].getResumeSampleIndex();
+
+                // Measure time since the last measurement. The IOIO's sample index is not affected by the latency
+                // of the connection, the host time is only used if both disagree (e. g. if no samples arrived), if
+                // there is no previous index of the same pin or if the pin was paused in between, which the index
+                // doesn't count.
+                if (lastMeasuredTime != -1) {
+                    double hostElapsed = (measuredTime - lastMeasuredTime) / 1000000000.;
+                    double deviceElapsed = (sampleIndex - lastSampleIndex) / (double) sampleRate;
+                    boolean resumed = lastSampleIndex < resumeIndex && resumeIndex <= sampleIndex;
+                    if (sampleIndex != -1 && lastSampleIndex != -1 && !resumed
+                            && Math.abs(deviceElapsed - hostElapsed) < MAX_CLOCK_DEVIATION)
+                        time += deviceElapsed;
+                    else
+                        time += hostElapsed;
+                }
+                lastMeasuredTime = measuredTime;
+                lastSampleIndex = sampleIndex;
+
+                samples.add(time, voltages);
+                DiskLogger logger = MeasurementService.this.logger;
+                if (logger != null)
+                    logger.add(time, voltages);
+
+                notifyMeasurementFinished();
+            }
+
+            /**
+             * Set up a buffer on each pin that queues every analog frame the IOIO sends.
+             */
+            private void startBuffering() throws ConnectionLostException {
+                for (AnalogInput pin : analogPins)
+                    pin.setBuffer(HIGH_RATE_BUFFER_CAPACITY);
+
+                // A frame may have arrived while the buffers were set up one by one. Drop the surplus samples so
+                // that the n-th sample of each pin belongs to the same frame.
+                int minAvailable = Integer.MAX_VALUE;
+                for (int i = 0; i < numPins; i++) {
+                    if (sampling[i])
+                        minAvailable = Math.min(minAvailable, analogPins[i].available());
+                }
+                try {
+                    for (int i = 0; i < numPins; i++) {
+                        if (!sampling[i])
+                            continue;
+                        for (int k = analogPins[i].available(); k > minAvailable; k--)
+                            analogPins[i].readBuffered();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                bufferStartTime = time;
+                bufferStartHostTime = System.nanoTime();
+                bufferStartIndex = (clockPin == -1) ? 0 : analogPins[clockPin].getBufferedSampleIndex();
+                lastOverflowCount = 0;
+                droppedSamples = 0;
+                buffering = true;
+            }
+
+            private void stopBuffering() throws ConnectionLostException {
+                for (AnalogInput pin : analogPins)
+                    pin.setBuffer(0);
+                buffering = false;
+                // Continue the time axis from the last buffered sample when switching back to polling.
+                lastMeasuredTime = paused ? -1 : System.nanoTime();
+            }
+
+            /**
+             * Read all frames that are available in the buffers of all pins.
+             * The time of each sample is derived from its sample index on the IOIO and the sample rate, so it does
+             * not depend on when it is read.
+             * @return The number of frames read
+             */
+            private int measureBuffered() throws ConnectionLostException, InterruptedException {
+                if (clockPin == -1)
+                    return 0;  // No pin is sampled.
+                int numFrames = Integer.MAX_VALUE;
+                for (int i = 0; i < numPins; i++) {
+                    if (sampling[i])
+                        numFrames = Math.min(numFrames, analogPins[i].available());
+                }
+
+                // Frames that were dropped because the buffers overflowed are skipped by the sample index.
+                int overflowCount = 0;
+                for (AnalogInput pin : analogPins)
+                    overflowCount = Math.max(overflowCount, pin.getOverflowCount());
+                if (overflowCount > lastOverflowCount) {
+                    droppedSamples += overflowCount - lastOverflowCount;
+                    lastOverflowCount = overflowCount;
+                    reportDroppedSamples();
+                }
+
+                DiskLogger logger = MeasurementService.this.logger;
+                long resumeIndex = analogPins[clockPin].getResumeSampleIndex();
+                for (int n = 0; n < numFrames; n++) {
+                    long sampleIndex = analogPins[clockPin].getBufferedSampleIndex();
+                    if (bufferStartIndex < resumeIndex && resumeIndex <= sampleIndex) {
+                        // The clock pin was paused, which the index doesn't count. Continue from the host time.
+                        long now = System.nanoTime();
+                        bufferStartTime = Math.max(time, bufferStartTime + (now - bufferStartHostTime) / 1000000000.);
+                        bufferStartHostTime = now;
+                        bufferStartIndex = resumeIndex;
+                    }
+                    for (int i = 0; i < numPins; i++)
+                        voltages[i] = sampling[i] ? analogPins[i].getVoltageBuffered() : Double.NaN;
+                    time = bufferStartTime + (sampleIndex - bufferStartIndex + 1) / (double) sampleRate;
+                    samples.add(time, voltages);
+                    if (logger != null)
+                        logger.add(time, voltages);
+                }
+
+                if (numFrames > 0)
+                    notifyMeasurementFinished();
+                return numFrames;
+            }
+
+            /**
+             * Show the number of samples that were dropped since buffering started, at most every few seconds.
+             */
+            private void reportDroppedSamples() {
+                long now = System.nanoTime() / 1000000;
+                if (now - lastDroppedSamplesReport < DROPPED_SAMPLES_REPORT_INTERVAL)
+                    return;
+                lastDroppedSamplesReport = now;
+
+                final int dropped = droppedSamples;
+                Log.w(D, "High rate: " + dropped + " samples dropped");
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        showToast(dropped + " samples dropped");
+                    }
+                });
+            }
+
+            @Override
+            public void disconnected() {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDisconnected(false);
+                    }
+                });
+            }
+
+            @Override
+            public void incompatible() {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDisconnected(true);
+                    }
+                });
+            }
+        };
+    }
+}
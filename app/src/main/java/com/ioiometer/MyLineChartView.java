@@ -75,6 +75,10 @@ public class MyLineChartView extends FrameLayout {
         plot = ChartFactory.getLineChartView(getContext(), dataset, plotRenderer);
         addView(plot);
 
+        // New values only scroll in from the right, so a repaint only needs to draw these instead of all visible
+        // values. Pan, zoom and resize still redraw everything.
+        ((XYChart) plot.getChart()).setStripChartEnabled(true);
+
         // Wihtout a series the axes and labels do not show up.
         addDummySeries();
 
@@ -4,7 +4,7 @@ import android.graphics.Color;
 import android.os.Parcel;
 import android.os.Parcelable;
 
-import org.achartengine.model.FixedLengthXYSeries;
+import org.achartengine.model.XYSeries;
 
 /**
  * Created by Johannes Rieke on 22.03.14.
@@ -14,17 +14,16 @@ public class Pin implements Parcelable {
     private static final String D = "MyDebug@Pin";
 
     public int number;
-    public boolean visible;
+    public volatile boolean visible;  // Also read by the IOIO thread, which stops sampling hidden pins.
     public String description;
     public int color;
-    public FixedLengthXYSeries series;
+    public XYSeries series;  // View on the pin's channel in MainActivity's sample store.
 
     public Pin(int number, boolean visible, String description, int color) {
         this.number = number;
         this.visible = visible;
         this.description = description;
         this.color = color;
-        series = new FixedLengthXYSeries(String.valueOf(number));
     }
 
     public Pin(int number, int color) {
@@ -40,7 +39,6 @@ public class Pin implements Parcelable {
         visible = (in.readInt() == 1);
         description = in.readString();
         color = in.readInt();
-        series = (FixedLengthXYSeries)in.readSerializable();
     }
 
     @Override
@@ -49,15 +47,6 @@ public class Pin implements Parcelable {
         out.writeInt((visible) ? 1 : 0);
         out.writeString(description);
         out.writeInt(color);
-        out.writeSerializable(series);
-    }
-
-    public void addPointToSeries(double time, double voltage) {
-        series.add(time, voltage);
-    }
-
-    public void clearSeries() {
-        series.clear();
     }
 
     public boolean equals(Pin pin) {
@@ -80,20 +69,4 @@ public class Pin implements Parcelable {
             return new Pin[size];
         }
     };
-
-    public int getNumSteps() {
-       return series.getItemCount();
-    }
-
-    public double getTime(int step) {
-        return series.getX(step);
-    }
-
-    public double getVoltage(int step) {
-        return series.getY(step);
-    }
-
-    public void setMaxDatapoints(int numDatapoints) {
-        this.series.setFixedLength(numDatapoints);
-    }
 }
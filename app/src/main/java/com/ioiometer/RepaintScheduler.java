@@ -0,0 +1,120 @@
+package com.ioiometer;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces repaints of the plots to at most one per display frame.
+ *
+ * Any thread can mark the plots dirty when new samples arrived. The repaint then runs on the UI thread at the next
+ * frame callback (Choreographer on Jelly Bean and later, a fixed interval before), no matter how often the plots
+ * were marked dirty in between. Nothing is scheduled while the plots are clean or the scheduler is stopped.
+ *
+ * @author Johannes Rieke
+ */
+public class RepaintScheduler {
+
+    private final static long FALLBACK_FRAME_INTERVAL = 16;  // ms
+
+    private final Runnable repaint;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final FrameSource frameSource;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final AtomicBoolean frameRequested = new AtomicBoolean(false);
+    private volatile boolean running = false;
+
+    private final Runnable requestFrame = new Runnable() {
+        @Override
+        public void run() {
+            frameSource.postFrame(onFrame);
+        }
+    };
+
+    private final Runnable onFrame = new Runnable() {
+        @Override
+        public void run() {
+            frameRequested.set(false);
+            if (running && dirty.getAndSet(false))
+                repaint.run();
+        }
+    };
+
+    /**
+     * @param repaint Repaints the plots, is called on the UI thread
+     */
+    public RepaintScheduler(Runnable repaint) {
+        this.repaint = repaint;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+            frameSource = new ChoreographerFrameSource();
+        else
+            frameSource = new HandlerFrameSource();
+    }
+
+    /**
+     * Repaint the plots at the next frame. Can be called from any thread.
+     */
+    public void markDirty() {
+        dirty.set(true);
+        requestFrame();
+    }
+
+    /**
+     * Start repainting, e. g. when the activity comes to the foreground. Changes while stopped are repainted at the
+     * next frame.
+     */
+    public void start() {
+        running = true;
+        requestFrame();
+    }
+
+    /**
+     * Stop repainting, e. g. when the activity goes to the background. The plots stay dirty until the next start.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    private void requestFrame() {
+        if (running && dirty.get() && frameRequested.compareAndSet(false, true))
+            handler.post(requestFrame);
+    }
+
+    private interface FrameSource {
+
+        /**
+         * Run 'callback' once on the UI thread at the next frame.
+         */
+        public void postFrame(Runnable callback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameSource implements FrameSource, Choreographer.FrameCallback {
+
+        private Runnable callback;
+
+        @Override
+        public void postFrame(Runnable callback) {
+            this.callback = callback;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            callback.run();
+        }
+    }
+
+    private class HandlerFrameSource implements FrameSource {
+
+        @Override
+        public void postFrame(Runnable callback) {
+            handler.postDelayed(callback, FALLBACK_FRAME_INTERVAL);
+        }
+    }
+}
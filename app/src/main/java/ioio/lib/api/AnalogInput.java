@@ -222,4 +222,64 @@ public interface AnalogInput extends Closeable {
 	 *             The connection with the IOIO is lost.
 	 */
 	public float getSampleRate() throws ConnectionLostException;
+
+	/**
+	 * Gets the device-side index of the sample that was returned by the last
+	 * call to {@link #read()} or {@link #getVoltage()}. The IOIO samples at a
+	 * fixed rate (see {@link #getSampleRate()}), so the difference of two
+	 * indices divided by the sample rate is the time between the two samples,
+	 * regardless of the latency of the connection. The first sample received
+	 * after opening the pin has index 0.
+	 * <p>
+	 * Indices only count the samples that were taken, so this does not hold
+	 * across a pause of sampling, see {@link #getResumeSampleIndex()}.
+	 * 
+	 * @return The sample index, or -1 if no sample has been read yet.
+	 * @throws ConnectionLostException
+	 *             The connection with the IOIO is lost.
+	 */
+	public long getSampleIndex() throws ConnectionLostException;
+
+	/**
+	 * Gets the device-side index of the sample that the next call to
+	 * {@link #readBuffered()} or {@link #getVoltageBuffered()} will return.
+	 * Samples that were dropped as result of overflow are skipped by the index.
+	 * 
+	 * @see #getSampleIndex()
+	 * @return The sample index.
+	 * @throws ConnectionLostException
+	 *             The connection with the IOIO is lost.
+	 */
+	public long getBufferedSampleIndex() throws ConnectionLostException;
+
+	/**
+	 * Gets the index of the first sample taken after sampling was last resumed
+	 * with {@link #setSampling(boolean)}, or 0 if it was never paused. The
+	 * index does not advance while sampling is paused, so for two samples with
+	 * indices a &lt; b, the difference b - a only gives the time between them
+	 * if not a &lt; getResumeSampleIndex() &lt;= b. Otherwise there was a pause
+	 * of unknown length in between.
+	 * 
+	 * @return The sample index.
+	 * @throws ConnectionLostException
+	 *             The connection with the IOIO is lost.
+	 */
+	public long getResumeSampleIndex() throws ConnectionLostException;
+
+	/**
+	 * Pauses or resumes the sampling of this pin. While paused, the IOIO
+	 * doesn't sample the pin or send its values, which reduces the size of
+	 * every analog frame and thus the bandwidth needed by the other analog
+	 * inputs. Sampling is enabled when the pin is opened.
+	 * <p>
+	 * While paused, {@link #read()} returns the last value, and buffered reads
+	 * block. After resuming, {@link #read()} blocks until a new value has
+	 * arrived.
+	 * 
+	 * @param enable
+	 *            True to sample the pin, false to pause sampling.
+	 * @throws ConnectionLostException
+	 *             The connection with the IOIO is lost.
+	 */
+	public void setSampling(boolean enable) throws ConnectionLostException;
 }
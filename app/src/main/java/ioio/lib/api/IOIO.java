@@ -339,6 +339,34 @@ public interface IOIO {
 	 */
 	public AnalogInput openAnalogInput(int pin) throws ConnectionLostException;
 
+	/**
+	 * Open a set of pins at once.
+	 * <p>
+	 * All pins are checked before any of them is opened, so an illegal or
+	 * busy pin leaves all pins closed. The configuration commands of all pins
+	 * are then sent to the IOIO in a single transfer, and the method returns
+	 * once the IOIO has acknowledged all analog inputs. Over high-latency
+	 * connections, this is much faster than opening the pins one by one.
+	 * <p>
+	 * Each pin operates as if it had been opened separately, until close() is
+	 * invoked on its interface or on the returned set. A connection must have
+	 * been established prior to calling this method, by invoking
+	 * {@link #waitForConnect()}.
+	 * 
+	 * @param spec
+	 *            The pins to open.
+	 * @return Interface of the opened pins.
+	 * @throws ConnectionLostException
+	 *             Connection was lost before or during the execution of this
+	 *             method.
+	 * @throws InterruptedException
+	 *             The calling thread has been interrupted while waiting for
+	 *             the IOIO. The pins have been closed again.
+	 * @see PinSet
+	 */
+	public PinSet openPinSet(PinSet.Spec spec) throws ConnectionLostException,
+			InterruptedException;
+
 	/**
 	 * Open a pin for PWM (Pulse-Width Modulation) output.
 	 * <p>
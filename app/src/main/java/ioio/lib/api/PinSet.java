@@ -0,0 +1,120 @@
+/*
+ * Copyright 2011 Ytai Ben-Tsvi. All rights reserved.
+ *  
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL ARSHAN POURSOHI OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied.
+ */
+
+package ioio.lib.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of pins that have been opened together.
+ * <p>
+ * Opening many pins one by one takes at least one transfer to the IOIO per
+ * pin, and analog inputs only deliver values after the IOIO has acknowledged
+ * each of them. A pin set is described by a {@link Spec} and opened with
+ * {@link IOIO#openPinSet(Spec)}, which checks all pins first, sends all
+ * configuration commands in a single transfer and waits for the
+ * acknowledgements of all analog inputs at once.
+ * <p>
+ * The interfaces of the single pins are obtained with the getters, and can be
+ * closed one by one. Closing the set closes all of its pins.
+ * 
+ * @see IOIO#openPinSet(Spec)
+ */
+public interface PinSet extends Closeable {
+	/** A pin set specification. */
+	static public class Spec {
+		/** The digital inputs to open. */
+		public final List<DigitalInput.Spec> digitalInputs = new ArrayList<DigitalInput.Spec>();
+		/** The digital outputs to open. */
+		public final List<DigitalOutput.Spec> digitalOutputs = new ArrayList<DigitalOutput.Spec>();
+		/** The start values of the digital outputs, in the same order. */
+		public final List<Boolean> digitalOutputStartValues = new ArrayList<Boolean>();
+		/** The pin numbers of the analog inputs to open. */
+		public final List<Integer> analogInputs = new ArrayList<Integer>();
+
+		/**
+		 * Add a digital input.
+		 * 
+		 * @see IOIO#openDigitalInput(DigitalInput.Spec)
+		 */
+		public Spec addDigitalInput(DigitalInput.Spec spec) {
+			digitalInputs.add(spec);
+			return this;
+		}
+
+		/**
+		 * Add a digital output.
+		 * 
+		 * @see IOIO#openDigitalOutput(DigitalOutput.Spec, boolean)
+		 */
+		public Spec addDigitalOutput(DigitalOutput.Spec spec, boolean startValue) {
+			digitalOutputs.add(spec);
+			digitalOutputStartValues.add(startValue);
+			return this;
+		}
+
+		/**
+		 * Add an analog input.
+		 * 
+		 * @see IOIO#openAnalogInput(int)
+		 */
+		public Spec addAnalogInput(int pin) {
+			analogInputs.add(pin);
+			return this;
+		}
+	}
+
+	/**
+	 * @param pin
+	 *            Pin number, as labeled on the board.
+	 * @return The digital input that was opened on this pin.
+	 * @throws IllegalArgumentException
+	 *             The set has no digital input on this pin.
+	 */
+	public DigitalInput getDigitalInput(int pin);
+
+	/**
+	 * @param pin
+	 *            Pin number, as labeled on the board.
+	 * @return The digital output that was opened on this pin.
+	 * @throws IllegalArgumentException
+	 *             The set has no digital output on this pin.
+	 */
+	public DigitalOutput getDigitalOutput(int pin);
+
+	/**
+	 * @param pin
+	 *            Pin number, as labeled on the board.
+	 * @return The analog input that was opened on this pin.
+	 * @throws IllegalArgumentException
+	 *             The set has no analog input on this pin.
+	 */
+	public AnalogInput getAnalogInput(int pin);
+}
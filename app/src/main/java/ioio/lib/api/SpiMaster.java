@@ -209,4 +209,28 @@ public interface SpiMaster extends Closeable {
 	public Result writeReadAsync(int slave, byte[] writeData, int writeSize,
 			int totalSize, byte[] readData, int readSize)
 			throws ConnectionLostException;
+
+	/**
+	 * Gets the number of bytes of requests the IOIO can currently accept from
+	 * this module. Requests are held back while this is too small for them.
+	 * 
+	 * @return The outgoing flow control credit, in bytes.
+	 */
+	public int getOutgoingCredit();
+
+	/**
+	 * Gets the number of requests that have been made, but not yet been sent
+	 * to the IOIO.
+	 * 
+	 * @return The number of queued requests.
+	 */
+	public int getQueuedRequests();
+
+	/**
+	 * Gets the total size of the requests that have been made, but not yet
+	 * been sent to the IOIO.
+	 * 
+	 * @return The number of queued bytes.
+	 */
+	public int getQueuedOutgoingBytes();
 }
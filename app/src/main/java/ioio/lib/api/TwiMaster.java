@@ -30,6 +30,8 @@ package ioio.lib.api;
 
 import ioio.lib.api.exception.ConnectionLostException;
 
+import java.util.concurrent.Executor;
+
 /**
  * An interface for controlling a TWI module, in TWI bus-master mode, enabling
  * communication with multiple TWI-enabled slave modules.
@@ -103,6 +105,28 @@ public interface TwiMaster extends Closeable {
 				InterruptedException;
 	}
 
+	/**
+	 * Receives the outcome of a transaction started with
+	 * {@link TwiMaster#writeReadAsync(int, boolean, byte[], int, byte[], int, Callback, Executor)}
+	 * .
+	 */
+	public interface Callback {
+		/**
+		 * The transaction is complete.
+		 * 
+		 * @param success
+		 *            Whether the transaction succeeded. If it did, the response
+		 *            has been stored in the readData array of the request.
+		 */
+		public void onComplete(boolean success);
+
+		/**
+		 * Connection with the IOIO has been lost before the transaction was
+		 * complete.
+		 */
+		public void onConnectionLost();
+	}
+
 	/**
 	 * Perform a single TWI transaction which includes optional transmission and
 	 * optional reception of data to a single slave. This is a blocking
@@ -145,4 +169,55 @@ public interface TwiMaster extends Closeable {
 	public Result writeReadAsync(int address, boolean tenBitAddr,
 			byte[] writeData, int writeSize, byte[] readData, int readSize)
 			throws ConnectionLostException;
+
+	/**
+	 * Asynchronous version of
+	 * {@link #writeRead(int, boolean, byte[], int, byte[], int)}, which reports
+	 * the result to a callback instead of blocking a thread.
+	 * <p>
+	 * Transactions are sent to the IOIO as soon as it has room for them, so
+	 * many transactions can be in flight at once. Apart from the callback, no
+	 * objects are allocated per transaction: the response is stored in
+	 * readData, and neither writeData nor readData may be modified until the
+	 * callback has been invoked. Callbacks are submitted in the order of the
+	 * requests, so they run in that order if executor is null or runs its
+	 * tasks one at a time in submission order. This method only blocks while
+	 * the outgoing queue is full.
+	 * 
+	 * @param callback
+	 *            Receives the result.
+	 * @param executor
+	 *            Runs the callback. If null, the callback runs on the thread
+	 *            that receives the data from the IOIO, and must return
+	 *            quickly.
+	 * @see #writeRead(int, boolean, byte[], int, byte[], int)
+	 */
+	public void writeReadAsync(int address, boolean tenBitAddr,
+			byte[] writeData, int writeSize, byte[] readData, int readSize,
+			Callback callback, Executor executor)
+			throws ConnectionLostException;
+
+	/**
+	 * Gets the number of bytes of requests the IOIO can currently accept from
+	 * this module. Requests are held back while this is too small for them.
+	 * 
+	 * @return The outgoing flow control credit, in bytes.
+	 */
+	public int getOutgoingCredit();
+
+	/**
+	 * Gets the number of requests that have been made, but not yet been sent
+	 * to the IOIO.
+	 * 
+	 * @return The number of queued requests.
+	 */
+	public int getQueuedRequests();
+
+	/**
+	 * Gets the total size of the requests that have been made, but not yet
+	 * been sent to the IOIO.
+	 * 
+	 * @return The number of queued bytes.
+	 */
+	public int getQueuedOutgoingBytes();
 }
@@ -104,4 +104,28 @@ public interface Uart extends Closeable {
 	 * @return An output stream.
 	 */
 	public OutputStream getOutputStream();
+
+	/**
+	 * Gets the number of received bytes that were discarded because the input
+	 * stream was not read fast enough to keep up with the incoming data.
+	 * 
+	 * @return The number of discarded bytes since the UART was opened.
+	 */
+	public long getDroppedBytes();
+
+	/**
+	 * Gets the number of bytes the IOIO can currently accept from the output
+	 * stream. Written bytes are held back while this is 0.
+	 * 
+	 * @return The outgoing flow control credit, in bytes.
+	 */
+	public int getOutgoingCredit();
+
+	/**
+	 * Gets the number of bytes that have been written to the output stream,
+	 * but not yet been sent to the IOIO.
+	 * 
+	 * @return The number of queued bytes.
+	 */
+	public int getQueuedOutgoingBytes();
 }
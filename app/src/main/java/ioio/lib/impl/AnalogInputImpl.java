@@ -30,14 +30,22 @@ package ioio.lib.impl;
 
 import ioio.lib.api.AnalogInput;
 import ioio.lib.api.exception.ConnectionLostException;
-import ioio.lib.impl.IncomingState.InputPinListener;
+import ioio.lib.impl.IncomingState.AnalogPinListener;
+import ioio.lib.spi.Log;
 
 import java.io.IOException;
 
 class AnalogInputImpl extends AbstractPin implements AnalogInput,
-		InputPinListener {
+		AnalogPinListener {
 	private int value_;
 	private boolean valid_ = false;
+	// The number of samples received since the pin was opened.
+	private long sampleCount_ = 0;
+	private long readIndex_ = -1;
+	private long resumeIndex_ = 0;
+	private boolean sampling_ = true;
+	// Sampling has been stopped, but the IOIO has not acknowledged it yet.
+	private boolean stopPending_ = false;
 
 	short[] buffer_;
 	int bufferSize_;
@@ -66,7 +74,10 @@ class AnalogInputImpl extends AbstractPin implements AnalogInput,
 		// Log.v("AnalogInputImpl", "Pin " + pinNum_ + " value is " + value);
 		assert (value >= 0 && value < 1024);
 		value_ = value;
-		if (!valid_) {
+		++sampleCount_;
+		// Values that arrive before a pending stop is acknowledged were sampled
+		// before the pause, and don't count as new after resuming.
+		if (!valid_ && !stopPending_) {
 			valid_ = true;
 			notifyAll();
 		}
@@ -81,9 +92,30 @@ class AnalogInputImpl extends AbstractPin implements AnalogInput,
 			wait();
 		}
 		checkState();
+		readIndex_ = sampleCount_ - 1;
 		return (float) value_ / 1023.0f;
 	}
 
+	@Override
+	synchronized public long getSampleIndex() throws ConnectionLostException {
+		checkState();
+		return readIndex_;
+	}
+
+	@Override
+	synchronized public long getBufferedSampleIndex()
+			throws ConnectionLostException {
+		checkState();
+		return sampleCount_ - bufferSize_;
+	}
+
+	@Override
+	synchronized public long getResumeSampleIndex()
+			throws ConnectionLostException {
+		checkState();
+		return resumeIndex_;
+	}
+
 	@Override
 	public synchronized void disconnected() {
 		super.disconnected();
@@ -93,12 +125,65 @@ class AnalogInputImpl extends AbstractPin implements AnalogInput,
 	@Override
 	public synchronized void close() {
 		super.close();
+		if (!sampling_ || stopPending_) {
+			// Already stopped, and the listener is removed by the IOIO's reply.
+			return;
+		}
 		try {
 			ioio_.protocol_.setAnalogInSampling(pinNum_, false);
 		} catch (IOException e) {
 		}
 	}
 
+	@Override
+	synchronized public void setSampling(boolean enable)
+			throws ConnectionLostException {
+		checkState();
+		if (enable == sampling_) {
+			return;
+		}
+		try {
+			if (enable) {
+				sampling_ = true;
+				valid_ = false;
+				if (!stopPending_) {
+					resume();
+				}
+				// Otherwise samplingStopped() resumes.
+			} else {
+				ioio_.protocol_.setAnalogInSampling(pinNum_, false);
+				sampling_ = false;
+				stopPending_ = true;
+			}
+		} catch (IOException e) {
+			throw new ConnectionLostException(e);
+		}
+	}
+
+	@Override
+	synchronized public void samplingStopped() {
+		stopPending_ = false;
+		if (sampling_ && state_ == State.OPEN) {
+			try {
+				resume();
+			} catch (IOException e) {
+				Log.e("AnalogInputImpl", "Failed to resume sampling", e);
+			}
+		}
+	}
+
+	/**
+	 * Start sampling again. The IOIO reports the pin as closed when sampling
+	 * stops, which removes this listener, so it is only registered again once
+	 * that report has arrived.
+	 */
+	private void resume() throws IOException {
+		// All samples from before the pause have arrived with the stop report.
+		resumeIndex_ = sampleCount_;
+		ioio_.incomingState_.addInputPinListener(pinNum_, this);
+		ioio_.protocol_.setAnalogInSampling(pinNum_, true);
+	}
+
 	@Override
 	public synchronized void setBuffer(int capacity)
 			throws ConnectionLostException {
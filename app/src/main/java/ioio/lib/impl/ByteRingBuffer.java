@@ -0,0 +1,108 @@
+/*
+ * Copyright 2011 Ytai Ben-Tsvi. All rights reserved.
+ *  
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL ARSHAN POURSOHI OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied.
+ */
+package ioio.lib.impl;
+
+/**
+ * A bounded byte queue for exactly one producer thread and one consumer
+ * thread.
+ * <p>
+ * Data is copied in bulk with {@link System#arraycopy}. The queue does not
+ * lock: the producer only writes the tail counter and the consumer only writes
+ * the head counter. Blocking, if needed, is left to the users of this class.
+ */
+class ByteRingBuffer {
+	private final byte[] buffer_;
+	// Total number of bytes ever read / written. Their difference is the size.
+	private volatile long head_ = 0;
+	private volatile long tail_ = 0;
+
+	ByteRingBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: "
+					+ capacity);
+		}
+		buffer_ = new byte[capacity];
+	}
+
+	int capacity() {
+		return buffer_.length;
+	}
+
+	int size() {
+		return (int) (tail_ - head_);
+	}
+
+	boolean isEmpty() {
+		return tail_ == head_;
+	}
+
+	int free() {
+		return buffer_.length - size();
+	}
+
+	/**
+	 * Appends up to len bytes. Must only be called by the producer.
+	 * 
+	 * @return The number of bytes appended, which is less than len if the
+	 *         queue is full.
+	 */
+	int write(byte[] data, int off, int len) {
+		final long tail = tail_;
+		final int n = Math.min(len, buffer_.length - (int) (tail - head_));
+		if (n <= 0) {
+			return 0;
+		}
+		final int pos = (int) (tail % buffer_.length);
+		final int first = Math.min(n, buffer_.length - pos);
+		System.arraycopy(data, off, buffer_, pos, first);
+		System.arraycopy(data, off + first, buffer_, 0, n - first);
+		tail_ = tail + n;
+		return n;
+	}
+
+	/**
+	 * Removes up to len bytes. Must only be called by the consumer.
+	 * 
+	 * @return The number of bytes removed, which is less than len if the queue
+	 *         holds fewer bytes.
+	 */
+	int read(byte[] data, int off, int len) {
+		final long head = head_;
+		final int n = Math.min(len, (int) (tail_ - head));
+		if (n <= 0) {
+			return 0;
+		}
+		final int pos = (int) (head % buffer_.length);
+		final int first = Math.min(n, buffer_.length - pos);
+		System.arraycopy(buffer_, pos, data, off, first);
+		System.arraycopy(buffer_, 0, data, off + first, n - first);
+		head_ = head + n;
+		return n;
+	}
+}
@@ -31,4 +31,5 @@ package ioio.lib.impl;
 class Constants {
 	static final int BUFFER_SIZE = 1024;
 	static final int PACKET_BUFFER_SIZE = 256;
+	static final int INCOMING_BUFFER_SIZE = 1024;
 }
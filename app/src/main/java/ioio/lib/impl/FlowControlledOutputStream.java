@@ -30,98 +30,151 @@ package ioio.lib.impl;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 
-class FlowControlledOutputStream extends OutputStream {
+class FlowControlledOutputStream extends OutputStream implements
+		FlowController.Channel {
 	interface Sender {
-		void send(byte[] data, int size);
+		void send(byte[] data, int offset, int size);
 	}
 
+	// At most this many packets are taken at once, so other channels are not
+	// held up by a long queue.
+	private static final int PACKETS_PER_TAKE = 4;
+
+	private final FlowController controller_;
 	private final Sender sender_;
-	private final BlockingQueue<Byte> queue_ = new ArrayBlockingQueue<Byte>(
-			Constants.BUFFER_SIZE);
-	private final FlushThread thread_ = new FlushThread();
+	// Filled by the writing threads (one at a time, see writeLock_) and drained
+	// by the controller thread. Guarded by the monitor of the controller, which
+	// is also used to wait for space, data or flow control credit.
+	private final ByteRingBuffer queue_;
+	private final Object writeLock_ = new Object();
+	private final byte[] oneByte_ = new byte[1];
 	private final int maxPacket_;
-	private final byte[] packet_;
+	private final byte[] taken_;
+	private int takenSize_ = 0;
 
 	private int readyToSend_ = 0;
-	private boolean closed_ = false;
+	private volatile boolean closed_ = false;
+
+	public FlowControlledOutputStream(FlowController controller,
+			Sender sender, int maxPacket) {
+		this(controller, sender, maxPacket, Constants.BUFFER_SIZE);
+	}
 
-	public FlowControlledOutputStream(Sender sender, int maxPacket) {
+	public FlowControlledOutputStream(FlowController controller,
+			Sender sender, int maxPacket, int capacity) {
+		controller_ = controller;
 		sender_ = sender;
 		maxPacket_ = maxPacket;
-		packet_ = new byte[maxPacket];
-		thread_.start();
+		taken_ = new byte[PACKETS_PER_TAKE * maxPacket];
+		queue_ = new ByteRingBuffer(capacity);
+		controller_.register(this);
 	}
 
 	@Override
-	synchronized public void flush() throws IOException {
-		try {
-			while (!closed_ && !queue_.isEmpty()) {
-				wait();
+	public void flush() throws IOException {
+		synchronized (controller_) {
+			try {
+				while (!closed_ && !queue_.isEmpty()) {
+					controller_.wait();
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted");
+			}
+			if (closed_) {
+				throw new IOException("Stream has been closed");
 			}
-		} catch (InterruptedException e) {
-			throw new IOException("Interrupted");
 		}
-		if (closed_) {
-			throw new IOException("Stream has been closed");
+	}
+
+	@Override
+	public void write(int oneByte) throws IOException {
+		synchronized (writeLock_) {
+			oneByte_[0] = (byte) oneByte;
+			write(oneByte_, 0, 1);
 		}
 	}
 
 	@Override
-	synchronized public void write(int oneByte) throws IOException {
+	public void write(byte[] b, int off, int len) throws IOException {
+		synchronized (writeLock_) {
+			while (len > 0) {
+				synchronized (controller_) {
+					if (closed_) {
+						throw new IOException("Stream has been closed");
+					}
+					int written = queue_.write(b, off, len);
+					off += written;
+					len -= written;
+					if (written > 0) {
+						controller_.notifyAll();
+					} else {
+						waitForSpace();
+					}
+				}
+			}
+		}
+	}
+
+	private void waitForSpace() throws IOException {
 		try {
-			while (!closed_ && !queue_.offer((byte) oneByte)) {
-				wait();
+			while (!closed_ && queue_.free() == 0) {
+				controller_.wait();
 			}
 		} catch (InterruptedException e) {
 			throw new IOException("Interrupted");
 		}
-		if (closed_) {
-			throw new IOException("Stream has been closed");
+	}
+
+	public void readyToSend(int numBytes) {
+		synchronized (controller_) {
+			readyToSend_ += numBytes;
+			controller_.notifyAll();
 		}
-		notifyAll();
 	}
 
-	synchronized public void readyToSend(int numBytes) {
-		readyToSend_ += numBytes;
-		notifyAll();
+	/**
+	 * @return The number of bytes the IOIO currently accepts for this stream.
+	 */
+	public int getCredit() {
+		synchronized (controller_) {
+			return readyToSend_;
+		}
 	}
 
-	@Override
-	synchronized public void close() {
-		if (closed_) {
-			return;
+	/**
+	 * @return The number of bytes written, but not yet sent.
+	 */
+	public int getQueuedBytes() {
+		synchronized (controller_) {
+			return queue_.size();
 		}
-		closed_ = true;
-		notifyAll();
-		thread_.interrupt();
 	}
 
-	class FlushThread extends Thread {
-		@Override
-		public void run() {
-			super.run();
-			try {
-				while (true) {
-					int toSend;
-					synchronized (FlowControlledOutputStream.this) {
-						while (readyToSend_ == 0 || queue_.isEmpty()) {
-							FlowControlledOutputStream.this.wait();
-						}
-						toSend = Math.min(maxPacket_,
-								Math.min(readyToSend_, queue_.size()));
-						for (int i = 0; i < toSend; ++i) {
-							packet_[i] = queue_.remove();
-						}
-						readyToSend_ -= toSend;
-						FlowControlledOutputStream.this.notifyAll();
-					}
-					sender_.send(packet_, toSend);
-				}
-			} catch (InterruptedException e) {
+	@Override
+	public void close() {
+		synchronized (controller_) {
+			if (closed_) {
+				return;
 			}
+			closed_ = true;
+			controller_.unregister(this);
+			controller_.notifyAll();
+		}
+	}
+
+	@Override
+	public int take(int budget) {
+		takenSize_ = queue_.read(taken_, 0,
+				Math.min(Math.min(taken_.length, readyToSend_), budget));
+		readyToSend_ -= takenSize_;
+		return takenSize_;
+	}
+
+	@Override
+	public void sendTaken() {
+		for (int off = 0; off < takenSize_ && !closed_; off += maxPacket_) {
+			sender_.send(taken_, off, Math.min(maxPacket_, takenSize_ - off));
 		}
 	}
 }
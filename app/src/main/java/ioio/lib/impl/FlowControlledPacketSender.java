@@ -29,10 +29,12 @@
 package ioio.lib.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 
-class FlowControlledPacketSender {
+class FlowControlledPacketSender implements FlowController.Channel {
 	interface Packet {
 		int getSize();
 	}
@@ -41,78 +43,127 @@ class FlowControlledPacketSender {
 		void send(Packet packet);
 	}
 
+	private final FlowController controller_;
 	private final Sender sender_;
+	// Guarded by the monitor of the controller, which is also used to wait for
+	// space, packets or flow control credit.
 	private final BlockingQueue<Packet> queue_ = new ArrayBlockingQueue<Packet>(
 			Constants.PACKET_BUFFER_SIZE);
-	private final FlushThread thread_ = new FlushThread();
+	// Only used by the controller thread.
+	private final List<Packet> taken_ = new ArrayList<Packet>();
 
 	private int readyToSend_ = 0;
-	private boolean closed_ = false;
+	private int queuedBytes_ = 0;
+	private volatile boolean closed_ = false;
 
-	public FlowControlledPacketSender(Sender sender) {
+	public FlowControlledPacketSender(FlowController controller, Sender sender) {
+		controller_ = controller;
 		sender_ = sender;
-		thread_.start();
+		controller_.register(this);
 	}
 
-	synchronized public void flush() throws IOException {
-		try {
-			while (!closed_ && !queue_.isEmpty()) {
-				wait();
+	public void flush() throws IOException {
+		synchronized (controller_) {
+			try {
+				while (!closed_ && !queue_.isEmpty()) {
+					controller_.wait();
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted");
+			}
+			if (closed_) {
+				throw new IllegalStateException("Stream has been closed");
 			}
-		} catch (InterruptedException e) {
-			throw new IOException("Interrupted");
-		}
-		if (closed_) {
-			throw new IllegalStateException("Stream has been closed");
 		}
 	}
 
-	synchronized public void write(Packet packet) throws IOException {
-		try {
-			while (!closed_ && !queue_.offer(packet)) {
-				wait();
+	public void write(Packet packet) throws IOException {
+		synchronized (controller_) {
+			try {
+				while (!closed_ && !queue_.offer(packet)) {
+					controller_.wait();
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted");
+			}
+			if (closed_) {
+				throw new IllegalStateException("Stream has been closed");
 			}
-		} catch (InterruptedException e) {
-			throw new IOException("Interrupted");
+			queuedBytes_ += packet.getSize();
+			controller_.notifyAll();
+		}
+	}
+
+	public void readyToSend(int numBytes) {
+		synchronized (controller_) {
+			readyToSend_ += numBytes;
+			controller_.notifyAll();
+		}
+	}
+
+	/**
+	 * @return The number of bytes the IOIO currently accepts for this module.
+	 */
+	public int getCredit() {
+		synchronized (controller_) {
+			return readyToSend_;
 		}
-		if (closed_) {
-			throw new IllegalStateException("Stream has been closed");
+	}
+
+	/**
+	 * @return The number of packets written, but not yet sent.
+	 */
+	public int getQueuedPackets() {
+		synchronized (controller_) {
+			return queue_.size();
 		}
-		notifyAll();
 	}
 
-	synchronized public void readyToSend(int numBytes) {
-		readyToSend_ += numBytes;
-		notifyAll();
+	/**
+	 * @return The total size of the packets written, but not yet sent.
+	 */
+	public int getQueuedBytes() {
+		synchronized (controller_) {
+			return queuedBytes_;
+		}
 	}
 
-	synchronized public void close() {
-		closed_ = true;
-		thread_.interrupt();
+	public void close() {
+		synchronized (controller_) {
+			closed_ = true;
+			controller_.unregister(this);
+			controller_.notifyAll();
+		}
 	}
 
-	synchronized public void kill() {
-		thread_.interrupt();
+	public void kill() {
+		close();
 	}
 
-	class FlushThread extends Thread {
-		@Override
-		public void run() {
-			super.run();
-			try {
-				while (true) {
-					synchronized (FlowControlledPacketSender.this) {
-						while (queue_.isEmpty()
-								|| readyToSend_ < queue_.peek().getSize()) {
-							FlowControlledPacketSender.this.wait();
-						}
-						FlowControlledPacketSender.this.notifyAll();
-						readyToSend_ -= queue_.peek().getSize();
-					}
-					sender_.send(queue_.remove());
-				}
-			} catch (InterruptedException e) {
+	@Override
+	public int take(int budget) {
+		int taken = 0;
+		while (!queue_.isEmpty()) {
+			int size = queue_.peek().getSize();
+			if (size > readyToSend_ || taken + size > budget) {
+				break;
+			}
+			taken_.add(queue_.remove());
+			readyToSend_ -= size;
+			queuedBytes_ -= size;
+			taken += size;
+		}
+		return taken;
+	}
+
+	@Override
+	public void sendTaken() {
+		for (Packet packet : taken_) {
+			if (closed_) {
+				break;
 			}
+			sender_.send(packet);
 		}
+		taken_.clear();
 	}
 }
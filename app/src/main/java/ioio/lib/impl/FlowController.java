@@ -0,0 +1,155 @@
+/*
+ * Copyright 2011 Ytai Ben-Tsvi. All rights reserved.
+ *  
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL ARSHAN POURSOHI OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied.
+ */
+package ioio.lib.impl;
+
+import ioio.lib.spi.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the outgoing data of all flow-controlled modules (UART, SPI, TWI) of
+ * a connection.
+ * <p>
+ * Each module queues its data in a {@link Channel}, and the IOIO grants each
+ * module credit as its buffer drains. Whenever data or credit arrives, a
+ * single thread takes what the credit allows out of all channels and sends it
+ * in one protocol batch, i.e. one write to the connection.
+ * <p>
+ * Each batch is limited to {@link #MAX_BATCH} bytes and the channels take
+ * turns in being served first, so a busy module cannot starve the others.
+ * Writers block while their channel's queue is full. The thread is only
+ * started when the first channel is registered.
+ */
+class FlowController {
+	private static final String TAG = "FlowController";
+	// Must be at least the size of the largest packet (a TWI write).
+	static final int MAX_BATCH = 1024;
+
+	interface Channel {
+		/**
+		 * Take out as much queued data as the credit of the module and
+		 * 'budget' allow, to be sent by {@link #sendTaken()}. Called with the
+		 * lock of the controller held.
+		 * 
+		 * @return The number of bytes taken.
+		 */
+		int take(int budget);
+
+		/**
+		 * Send the data taken by the last {@link #take()}. Called on the
+		 * thread of the controller, without holding its lock.
+		 */
+		void sendTaken();
+	}
+
+	private final IOIOProtocol protocol_;
+	private final List<Channel> channels_ = new ArrayList<Channel>();
+	// Only used by the send thread.
+	private final List<Channel> taken_ = new ArrayList<Channel>();
+	private final SendThread thread_ = new SendThread();
+	private int first_ = 0;
+	private boolean started_ = false;
+	private boolean closed_ = false;
+
+	FlowController(IOIOProtocol protocol) {
+		protocol_ = protocol;
+	}
+
+	synchronized void register(Channel channel) {
+		channels_.add(channel);
+		if (!started_ && !closed_) {
+			started_ = true;
+			thread_.start();
+		}
+	}
+
+	synchronized void unregister(Channel channel) {
+		channels_.remove(channel);
+	}
+
+	synchronized void close() {
+		closed_ = true;
+		thread_.interrupt();
+	}
+
+	private boolean takeAll() {
+		final int numChannels = channels_.size();
+		int budget = MAX_BATCH;
+		for (int i = 0; i < numChannels && budget > 0; ++i) {
+			Channel channel = channels_.get((first_ + i) % numChannels);
+			int taken = channel.take(budget);
+			if (taken > 0) {
+				budget -= taken;
+				taken_.add(channel);
+			}
+		}
+		if (numChannels > 0) {
+			first_ = (first_ + 1) % numChannels;
+		}
+		return !taken_.isEmpty();
+	}
+
+	private void sendAll() {
+		protocol_.beginBatch();
+		try {
+			for (Channel channel : taken_) {
+				channel.sendTaken();
+			}
+		} finally {
+			taken_.clear();
+			try {
+				protocol_.endBatch();
+			} catch (IOException e) {
+				Log.e(TAG, "Caught exception", e);
+			}
+		}
+	}
+
+	class SendThread extends Thread {
+		@Override
+		public void run() {
+			super.run();
+			try {
+				while (true) {
+					synchronized (FlowController.this) {
+						while (!takeAll()) {
+							FlowController.this.wait();
+						}
+						// Writers may be waiting for the space that was freed.
+						FlowController.this.notifyAll();
+					}
+					sendAll();
+				}
+			} catch (InterruptedException e) {
+			}
+		}
+	}
+}
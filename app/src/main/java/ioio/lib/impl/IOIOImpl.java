@@ -36,6 +36,7 @@ import ioio.lib.api.DigitalOutput;
 import ioio.lib.api.IOIO;
 import ioio.lib.api.IOIOConnection;
 import ioio.lib.api.IcspMaster;
+import ioio.lib.api.PinSet;
 import ioio.lib.api.PulseInput;
 import ioio.lib.api.PulseInput.ClockRate;
 import ioio.lib.api.PulseInput.PulseMode;
@@ -60,7 +61,7 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 			'I', 'O', '0', '0', '0', '3' };
 
 	private IOIOConnection connection_;
-	private IncomingState incomingState_ = new IncomingState();
+	IncomingState incomingState_ = new IncomingState();
 	private boolean openPins_[];
 	private boolean openTwi_[];
 	private boolean openIcsp_;
@@ -70,8 +71,11 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 	private ModuleAllocator incapAllocatorDouble_;
 	private ModuleAllocator incapAllocatorSingle_;
 	IOIOProtocol protocol_;
+	FlowController flowController_;
 	private State state_ = State.INIT;
 	private Board.Hardware hardware_;
+	private int streamBufferSize_ = Constants.BUFFER_SIZE;
+	private int receiveBufferSize_ = Constants.INCOMING_BUFFER_SIZE;
 
 	public IOIOImpl(IOIOConnection con) {
 		connection_ = con;
@@ -97,7 +101,9 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 						throw new ConnectionLostException();
 					}
 					protocol_ = new IOIOProtocol(connection_.getInputStream(),
-							connection_.getOutputStream(), incomingState_);
+							connection_.getOutputStream(), incomingState_,
+							receiveBufferSize_);
+					flowController_ = new FlowController(protocol_);
 					// Once this block exits, a disconnect will also involve
 					// softClose().
 				}
@@ -144,6 +150,9 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 	@Override
 	public synchronized void disconnected() {
 		state_ = State.DEAD;
+		if (flowController_ != null) {
+			flowController_.close();
+		}
 		if (disconnect_) {
 			return;
 		}
@@ -163,6 +172,50 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 		return state_;
 	}
 
+	/**
+	 * Gets the number of bytes received from the IOIO during the last second.
+	 * Returns 0 before the connection is established.
+	 */
+	public int getReceivedBytesPerSecond() {
+		final IOIOProtocol protocol = protocol_;
+		return protocol == null ? 0 : protocol.getBytesPerSecond();
+	}
+
+	/**
+	 * Gets the number of messages parsed from the IOIO during the last
+	 * second. Returns 0 before the connection is established.
+	 */
+	public int getReceivedFramesPerSecond() {
+		final IOIOProtocol protocol = protocol_;
+		return protocol == null ? 0 : protocol.getFramesPerSecond();
+	}
+
+	/**
+	 * Sets the capacity in bytes of the input and output stream buffers of
+	 * UARTs opened from now on. Received bytes that do not fit into a full
+	 * buffer are discarded.
+	 */
+	synchronized public void setStreamBufferSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive: "
+					+ size);
+		}
+		streamBufferSize_ = size;
+	}
+
+	/**
+	 * Sets the size in bytes of the buffer into which data is read from the
+	 * connection. Larger buffers need fewer reads at high data rates. Only
+	 * takes effect if called before {@link #waitForConnect()}.
+	 */
+	synchronized public void setReceiveBufferSize(int size) {
+		if (size <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive: "
+					+ size);
+		}
+		receiveBufferSize_ = size;
+	}
+
 	private void initBoard() throws IncompatibilityException {
 		if (incomingState_.board_ == null) {
 			throw new IncompatibilityException("Unknown board: "
@@ -424,6 +477,101 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 		return result;
 	}
 
+	@Override
+	public PinSet openPinSet(PinSet.Spec spec) throws ConnectionLostException,
+			InterruptedException {
+		int[] analogPins = new int[spec.analogInputs.size()];
+		AnalogInputImpl[] analogInputs = new AnalogInputImpl[analogPins.length];
+		PinSetImpl result = openPinSetBatch(spec, analogPins, analogInputs);
+		// Wait without holding the lock of this object, which a disconnect
+		// needs in order to end the wait.
+		try {
+			incomingState_.waitInputPinsOpen(analogPins, analogInputs);
+		} catch (InterruptedException e) {
+			result.close();
+			throw e;
+		} catch (ConnectionLostException e) {
+			result.close();
+			throw e;
+		}
+		return result;
+	}
+
+	/**
+	 * Open the pins of a set, sending all commands in a single batch.
+	 * 
+	 * @param analogPins
+	 *            Receives the numbers of the analog pins.
+	 * @param analogInputs
+	 *            Receives the analog inputs, in the same order.
+	 */
+	private synchronized PinSetImpl openPinSetBatch(PinSet.Spec spec,
+			int[] analogPins, AnalogInputImpl[] analogInputs)
+			throws ConnectionLostException {
+		checkState();
+		// Check all pins before opening any, so a bad spec opens nothing.
+		boolean[] claimed = new boolean[openPins_.length];
+		for (DigitalInput.Spec input : spec.digitalInputs) {
+			hardware_.checkValidPin(input.pin);
+			checkPinFreeInSet(input.pin, claimed);
+		}
+		for (DigitalOutput.Spec output : spec.digitalOutputs) {
+			hardware_.checkValidPin(output.pin);
+			checkPinFreeInSet(output.pin, claimed);
+		}
+		for (int pin : spec.analogInputs) {
+			hardware_.checkSupportsAnalogInput(pin);
+			checkPinFreeInSet(pin, claimed);
+		}
+
+		PinSetImpl result = new PinSetImpl(openPins_.length);
+		try {
+			protocol_.beginBatch();
+			try {
+				for (DigitalInput.Spec input : spec.digitalInputs) {
+					DigitalInputImpl pin = new DigitalInputImpl(this, input.pin);
+					addDisconnectListener(pin);
+					openPins_[input.pin] = true;
+					result.addDigitalInput(input.pin, pin);
+					incomingState_.addInputPinListener(input.pin, pin);
+					protocol_.setPinDigitalIn(input.pin, input.mode);
+					protocol_.setChangeNotify(input.pin, true);
+				}
+				for (int i = 0; i < spec.digitalOutputs.size(); ++i) {
+					DigitalOutput.Spec output = spec.digitalOutputs.get(i);
+					boolean startValue = spec.digitalOutputStartValues.get(i);
+					DigitalOutputImpl pin = new DigitalOutputImpl(this,
+							output.pin, startValue);
+					addDisconnectListener(pin);
+					openPins_[output.pin] = true;
+					result.addDigitalOutput(output.pin, pin);
+					protocol_.setPinDigitalOut(output.pin, startValue,
+							output.mode);
+				}
+				for (int i = 0; i < analogPins.length; ++i) {
+					analogPins[i] = spec.analogInputs.get(i);
+					analogInputs[i] = new AnalogInputImpl(this, analogPins[i]);
+					addDisconnectListener(analogInputs[i]);
+					openPins_[analogPins[i]] = true;
+					result.addAnalogInput(analogPins[i], analogInputs[i]);
+					incomingState_.addInputPinListener(analogPins[i],
+							analogInputs[i]);
+					protocol_.setPinAnalogIn(analogPins[i]);
+					protocol_.setAnalogInSampling(analogPins[i], true);
+				}
+			} finally {
+				protocol_.endBatch();
+			}
+		} catch (IOException e) {
+			result.close();
+			throw new ConnectionLostException(e);
+		} catch (ConnectionLostException e) {
+			result.close();
+			throw e;
+		}
+		return result;
+	}
+
 	@Override
 	public PwmOutput openPwmOutput(int pin, int freqHz)
 			throws ConnectionLostException {
@@ -493,7 +641,8 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 		int rxPin = rx != null ? rx.pin : INVALID_PIN;
 		int txPin = tx != null ? tx.pin : INVALID_PIN;
 		int uartNum = uartAllocator_.allocateModule();
-		UartImpl uart = new UartImpl(this, txPin, rxPin, uartNum);
+		UartImpl uart = new UartImpl(this, txPin, rxPin, uartNum,
+				streamBufferSize_);
 		addDisconnectListener(uart);
 		incomingState_.addUartListener(uartNum, uart);
 		try {
@@ -676,6 +825,14 @@ public class IOIOImpl implements IOIO, DisconnectListener {
 		}
 	}
 
+	private void checkPinFreeInSet(int pin, boolean[] claimed) {
+		checkPinFree(pin);
+		if (claimed[pin]) {
+			throw new IllegalArgumentException("Pin used twice in set: " + pin);
+		}
+		claimed[pin] = true;
+	}
+
 	private void checkTwiFree(int twi) {
 		if (openTwi_[twi]) {
 			throw new IllegalArgumentException("TWI already open: " + twi);
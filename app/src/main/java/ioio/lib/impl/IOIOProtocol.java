@@ -38,11 +38,6 @@ import ioio.lib.spi.Log;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Set;
 
 class IOIOProtocol {
 	static final int HARD_RESET                          = 0x00;
@@ -135,26 +130,98 @@ class IOIOProtocol {
 		}
 	}
 
+	/**
+	 * Encodes a single outgoing command. Each thread encodes into its own
+	 * encoder without holding the protocol lock, which is only taken to
+	 * enqueue the finished command, see {@link IOIOProtocol#send}.
+	 */
+	private static class CommandEncoder {
+		private byte[] buf_ = new byte[16];
+		private int pos_ = 0;
+
+		void writeByte(int b) {
+			assert (b >= 0 && b < 256);
+			ensureCapacity(1);
+			//Log.v(TAG, "sending: 0x" + Integer.toHexString(b));
+			buf_[pos_++] = (byte) b;
+		}
+
+		void writeTwoBytes(int i) {
+			writeByte(i & 0xFF);
+			writeByte(i >> 8);
+		}
+
+		void writeThreeBytes(int i) {
+			writeByte(i & 0xFF);
+			writeByte((i >> 8) & 0xFF);
+			writeByte((i >> 16) & 0xFF);
+		}
+
+		void writeBytes(byte[] data, int offset, int size) {
+			if (size == 0) {
+				// data may be null, e.g. for a read-only TWI transaction.
+				return;
+			}
+			ensureCapacity(size);
+			System.arraycopy(data, offset, buf_, pos_, size);
+			pos_ += size;
+		}
+
+		private void ensureCapacity(int size) {
+			if (pos_ + size > buf_.length) {
+				byte[] buf = new byte[Math.max(2 * buf_.length, pos_ + size)];
+				System.arraycopy(buf_, 0, buf, 0, pos_);
+				buf_ = buf;
+			}
+		}
+	}
+
+	private static final ThreadLocal<CommandEncoder> encoder_ =
+			new ThreadLocal<CommandEncoder>() {
+		@Override
+		protected CommandEncoder initialValue() {
+			return new CommandEncoder();
+		}
+	};
+
+	// Commands of a batch, grows to hold the whole batch.
 	private byte[] outbuf_ = new byte[256];
 	private int pos_ = 0;
 	private int batchCounter_ = 0;
 
-	private void writeByte(int b) throws IOException {
-		assert (b >= 0 && b < 256);
-		if (pos_ == outbuf_.length) {
-			// buffer is full
-			flush();
+	private static CommandEncoder beginCommand(int command) {
+		CommandEncoder encoder = encoder_.get();
+		encoder.pos_ = 0;
+		encoder.writeByte(command);
+		return encoder;
+	}
+
+	/**
+	 * Enqueue an encoded command. Outside of a batch, it is handed to the
+	 * stream directly, otherwise it is appended to the batch buffer, which is
+	 * written to the stream in one piece by the outermost endBatch().
+	 */
+	private synchronized void send(CommandEncoder cmd) throws IOException {
+		if (batchCounter_ == 0) {
+			out_.write(cmd.buf_, 0, cmd.pos_);
+			return;
+		}
+		if (pos_ + cmd.pos_ > outbuf_.length) {
+			byte[] outbuf = new byte[Math.max(2 * outbuf_.length, pos_
+					+ cmd.pos_)];
+			System.arraycopy(outbuf_, 0, outbuf, 0, pos_);
+			outbuf_ = outbuf;
 		}
-		//Log.v(TAG, "sending: 0x" + Integer.toHexString(b));
-		outbuf_[pos_++] = (byte) b;
+		System.arraycopy(cmd.buf_, 0, outbuf_, pos_, cmd.pos_);
+		pos_ += cmd.pos_;
 	}
-	
+
 	public synchronized void beginBatch() {
 		++batchCounter_;
 	}
-	
+
 	public synchronized void endBatch() throws IOException {
-		if (--batchCounter_ == 0) {
+		if (--batchCounter_ == 0 && pos_ > 0) {
 			flush();
 		}
 	}
@@ -167,142 +234,114 @@ class IOIOProtocol {
 		}
 	}
 
-	private void writeTwoBytes(int i) throws IOException {
-		writeByte(i & 0xFF);
-		writeByte(i >> 8);
-	}
-
-	private void writeThreeBytes(int i) throws IOException {
-		writeByte(i & 0xFF);
-		writeByte((i >> 8) & 0xFF);
-		writeByte((i >> 16) & 0xFF);
+	public void hardReset() throws IOException {
+		CommandEncoder cmd = beginCommand(HARD_RESET);
+		cmd.writeByte('I');
+		cmd.writeByte('O');
+		cmd.writeByte('I');
+		cmd.writeByte('O');
+		send(cmd);
 	}
 
-	synchronized public void hardReset() throws IOException {
-		beginBatch();
-		writeByte(HARD_RESET);
-		writeByte('I');
-		writeByte('O');
-		writeByte('I');
-		writeByte('O');
-		endBatch();
+	public void softReset() throws IOException {
+		CommandEncoder cmd = beginCommand(SOFT_RESET);
+		send(cmd);
 	}
 
-	synchronized public void softReset() throws IOException {
-		beginBatch();
-		writeByte(SOFT_RESET);
-		endBatch();
+	public void softClose() throws IOException {
+		CommandEncoder cmd = beginCommand(SOFT_CLOSE);
+		send(cmd);
 	}
 
-	synchronized public void softClose() throws IOException {
-		beginBatch();
-		writeByte(SOFT_CLOSE);
-		endBatch();
-	}
-
-	synchronized public void checkInterface(byte[] interfaceId)
+	public void checkInterface(byte[] interfaceId)
 			throws IOException {
 		if (interfaceId.length != 8) {
 			throw new IllegalArgumentException(
 					"interface ID must be exactly 8 bytes long");
 		}
-		beginBatch();
-		writeByte(CHECK_INTERFACE);
-		for (int i = 0; i < 8; ++i) {
-			writeByte(interfaceId[i]);
-		}
-		endBatch();
+		CommandEncoder cmd = beginCommand(CHECK_INTERFACE);
+		cmd.writeBytes(interfaceId, 0, 8);
+		send(cmd);
 	}
 
-	synchronized public void setDigitalOutLevel(int pin, boolean level)
+	public void setDigitalOutLevel(int pin, boolean level)
 			throws IOException {
-		beginBatch();
-		writeByte(SET_DIGITAL_OUT_LEVEL);
-		writeByte(pin << 2 | (level ? 1 : 0));
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_DIGITAL_OUT_LEVEL);
+		cmd.writeByte(pin << 2 | (level ? 1 : 0));
+		send(cmd);
 	}
 
-	synchronized public void setPinPwm(int pin, int pwmNum, boolean enable)
+	public void setPinPwm(int pin, int pwmNum, boolean enable)
 			throws IOException {
-		beginBatch();
-		writeByte(SET_PIN_PWM);
-		writeByte(pin & 0x3F);
-		writeByte((enable ? 0x80 : 0x00) | (pwmNum & 0x0F));
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_PIN_PWM);
+		cmd.writeByte(pin & 0x3F);
+		cmd.writeByte((enable ? 0x80 : 0x00) | (pwmNum & 0x0F));
+		send(cmd);
 	}
 
-	synchronized public void setPwmDutyCycle(int pwmNum, int dutyCycle,
+	public void setPwmDutyCycle(int pwmNum, int dutyCycle,
 			int fraction) throws IOException {
-		beginBatch();
-		writeByte(SET_PWM_DUTY_CYCLE);
-		writeByte(pwmNum << 2 | fraction);
-		writeTwoBytes(dutyCycle);
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_PWM_DUTY_CYCLE);
+		cmd.writeByte(pwmNum << 2 | fraction);
+		cmd.writeTwoBytes(dutyCycle);
+		send(cmd);
 	}
 
-	synchronized public void setPwmPeriod(int pwmNum, int period, PwmScale scale)
+	public void setPwmPeriod(int pwmNum, int period, PwmScale scale)
 			throws IOException {
-		beginBatch();
-		writeByte(SET_PWM_PERIOD);
-		writeByte(((scale.encoding & 0x02) << 6) | (pwmNum << 1)
+		CommandEncoder cmd = beginCommand(SET_PWM_PERIOD);
+		cmd.writeByte(((scale.encoding & 0x02) << 6) | (pwmNum << 1)
 				| (scale.encoding & 0x01));
-		writeTwoBytes(period);
-		endBatch();
+		cmd.writeTwoBytes(period);
+		send(cmd);
 	}
 
-	synchronized public void setPinIncap(int pin, int incapNum, boolean enable)
+	public void setPinIncap(int pin, int incapNum, boolean enable)
 			throws IOException {
-		beginBatch();
-		writeByte(SET_PIN_INCAP);
-		writeByte(pin);
-		writeByte(incapNum | (enable ? 0x80 : 0x00));
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_PIN_INCAP);
+		cmd.writeByte(pin);
+		cmd.writeByte(incapNum | (enable ? 0x80 : 0x00));
+		send(cmd);
 	}
 
-	synchronized public void incapClose(int incapNum, boolean double_prec)
+	public void incapClose(int incapNum, boolean double_prec)
 			throws IOException {
-		beginBatch();
-		writeByte(INCAP_CONFIGURE);
-		writeByte(incapNum);
-		writeByte(double_prec ? 0x80 : 0x00);
-		endBatch();
+		CommandEncoder cmd = beginCommand(INCAP_CONFIGURE);
+		cmd.writeByte(incapNum);
+		cmd.writeByte(double_prec ? 0x80 : 0x00);
+		send(cmd);
 	}
 
-	synchronized public void incapConfigure(int incapNum, boolean double_prec,
+	public void incapConfigure(int incapNum, boolean double_prec,
 			int mode, int clock) throws IOException {
-		beginBatch();
-		writeByte(INCAP_CONFIGURE);
-		writeByte(incapNum);
-		writeByte((double_prec ? 0x80 : 0x00) | (mode << 3) | clock);
-		endBatch();
+		CommandEncoder cmd = beginCommand(INCAP_CONFIGURE);
+		cmd.writeByte(incapNum);
+		cmd.writeByte((double_prec ? 0x80 : 0x00) | (mode << 3) | clock);
+		send(cmd);
 	}
 
-	synchronized public void i2cWriteRead(int i2cNum, boolean tenBitAddr,
+	public void i2cWriteRead(int i2cNum, boolean tenBitAddr,
 			int address, int writeSize, int readSize, byte[] writeData)
 			throws IOException {
-		beginBatch();
-		writeByte(I2C_WRITE_READ);
-		writeByte(((address >> 8) << 6) | (tenBitAddr ? 0x20 : 0x00) | i2cNum);
-		writeByte(address & 0xFF);
-		writeByte(writeSize);
-		writeByte(readSize);
-		for (int i = 0; i < writeSize; ++i) {
-			writeByte(((int) writeData[i]) & 0xFF);
-		}
-		endBatch();
+		CommandEncoder cmd = beginCommand(I2C_WRITE_READ);
+		cmd.writeByte(((address >> 8) << 6) | (tenBitAddr ? 0x20 : 0x00) | i2cNum);
+		cmd.writeByte(address & 0xFF);
+		cmd.writeByte(writeSize);
+		cmd.writeByte(readSize);
+		cmd.writeBytes(writeData, 0, writeSize);
+		send(cmd);
 	}
 
-	synchronized public void setPinDigitalOut(int pin, boolean value,
+	public void setPinDigitalOut(int pin, boolean value,
 			DigitalOutput.Spec.Mode mode) throws IOException {
-		beginBatch();
-		writeByte(SET_PIN_DIGITAL_OUT);
-		writeByte((pin << 2)
+		CommandEncoder cmd = beginCommand(SET_PIN_DIGITAL_OUT);
+		cmd.writeByte((pin << 2)
 				| (mode == DigitalOutput.Spec.Mode.OPEN_DRAIN ? 0x01 : 0x00)
 				| (value ? 0x02 : 0x00));
-		endBatch();
+		send(cmd);
 	}
 
-	synchronized public void setPinDigitalIn(int pin,
+	public void setPinDigitalIn(int pin,
 			DigitalInput.Spec.Mode mode) throws IOException {
 		int pull = 0;
 		if (mode == DigitalInput.Spec.Mode.PULL_UP) {
@@ -310,189 +349,165 @@ class IOIOProtocol {
 		} else if (mode == DigitalInput.Spec.Mode.PULL_DOWN) {
 			pull = 2;
 		}
-		beginBatch();
-		writeByte(SET_PIN_DIGITAL_IN);
-		writeByte((pin << 2) | pull);
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_PIN_DIGITAL_IN);
+		cmd.writeByte((pin << 2) | pull);
+		send(cmd);
 	}
 
-	synchronized public void setChangeNotify(int pin, boolean changeNotify)
+	public void setChangeNotify(int pin, boolean changeNotify)
 			throws IOException {
-		beginBatch();
-		writeByte(SET_CHANGE_NOTIFY);
-		writeByte((pin << 2) | (changeNotify ? 0x01 : 0x00));
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_CHANGE_NOTIFY);
+		cmd.writeByte((pin << 2) | (changeNotify ? 0x01 : 0x00));
+		send(cmd);
 	}
 
-	synchronized public void registerPeriodicDigitalSampling(int pin,
+	public void registerPeriodicDigitalSampling(int pin,
 			int freqScale) throws IOException {
 		// TODO: implement
 	}
 
-	synchronized public void setPinAnalogIn(int pin) throws IOException {
-		beginBatch();
-		writeByte(SET_PIN_ANALOG_IN);
-		writeByte(pin);
-		endBatch();
+	public void setPinAnalogIn(int pin) throws IOException {
+		CommandEncoder cmd = beginCommand(SET_PIN_ANALOG_IN);
+		cmd.writeByte(pin);
+		send(cmd);
 	}
 
-	synchronized public void setAnalogInSampling(int pin, boolean enable)
+	public void setAnalogInSampling(int pin, boolean enable)
 			throws IOException {
-		beginBatch();
-		writeByte(SET_ANALOG_IN_SAMPLING);
-		writeByte((enable ? 0x80 : 0x00) | (pin & 0x3F));
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_ANALOG_IN_SAMPLING);
+		cmd.writeByte((enable ? 0x80 : 0x00) | (pin & 0x3F));
+		send(cmd);
 	}
 
-	synchronized public void uartData(int uartNum, int numBytes, byte data[])
+	public void uartData(int uartNum, int numBytes, byte data[], int offset)
 			throws IOException {
 		if (numBytes > 64) {
 			throw new IllegalArgumentException(
 					"A maximum of 64 bytes can be sent in one uartData message. Got: "
 							+ numBytes);
 		}
-		beginBatch();
-		writeByte(UART_DATA);
-		writeByte((numBytes - 1) | uartNum << 6);
-		for (int i = 0; i < numBytes; ++i) {
-			writeByte(((int) data[i]) & 0xFF);
-		}
-		endBatch();
+		CommandEncoder cmd = beginCommand(UART_DATA);
+		cmd.writeByte((numBytes - 1) | uartNum << 6);
+		cmd.writeBytes(data, offset, numBytes);
+		send(cmd);
 	}
 
-	synchronized public void uartConfigure(int uartNum, int rate,
+	public void uartConfigure(int uartNum, int rate,
 			boolean speed4x, Uart.StopBits stopbits, Uart.Parity parity)
 			throws IOException {
 		int parbits = parity == Uart.Parity.EVEN ? 1
 				: (parity == Uart.Parity.ODD ? 2 : 0);
-		beginBatch();
-		writeByte(UART_CONFIG);
-		writeByte((uartNum << 6) | (speed4x ? 0x08 : 0x00)
+		CommandEncoder cmd = beginCommand(UART_CONFIG);
+		cmd.writeByte((uartNum << 6) | (speed4x ? 0x08 : 0x00)
 				| (stopbits == Uart.StopBits.TWO ? 0x04 : 0x00) | parbits);
-		writeTwoBytes(rate);
-		endBatch();
+		cmd.writeTwoBytes(rate);
+		send(cmd);
 	}
 
-	synchronized public void uartClose(int uartNum) throws IOException {
-		beginBatch();
-		writeByte(UART_CONFIG);
-		writeByte(uartNum << 6);
-		writeTwoBytes(0);
-		endBatch();
+	public void uartClose(int uartNum) throws IOException {
+		CommandEncoder cmd = beginCommand(UART_CONFIG);
+		cmd.writeByte(uartNum << 6);
+		cmd.writeTwoBytes(0);
+		send(cmd);
 	}
 
-	synchronized public void setPinUart(int pin, int uartNum, boolean tx,
+	public void setPinUart(int pin, int uartNum, boolean tx,
 			boolean enable) throws IOException {
-		beginBatch();
-		writeByte(SET_PIN_UART);
-		writeByte(pin);
-		writeByte((enable ? 0x80 : 0x00) | (tx ? 0x40 : 0x00) | uartNum);
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_PIN_UART);
+		cmd.writeByte(pin);
+		cmd.writeByte((enable ? 0x80 : 0x00) | (tx ? 0x40 : 0x00) | uartNum);
+		send(cmd);
 	}
 
-	synchronized public void spiConfigureMaster(int spiNum,
+	public void spiConfigureMaster(int spiNum,
 			SpiMaster.Config config) throws IOException {
-		beginBatch();
-		writeByte(SPI_CONFIGURE_MASTER);
-		writeByte((spiNum << 5) | SCALE_DIV[config.rate.ordinal()]);
-		writeByte((config.sampleOnTrailing ? 0x00 : 0x02)
+		CommandEncoder cmd = beginCommand(SPI_CONFIGURE_MASTER);
+		cmd.writeByte((spiNum << 5) | SCALE_DIV[config.rate.ordinal()]);
+		cmd.writeByte((config.sampleOnTrailing ? 0x00 : 0x02)
 				| (config.invertClk ? 0x01 : 0x00));
-		endBatch();
+		send(cmd);
 	}
 
-	synchronized public void spiClose(int spiNum) throws IOException {
-		beginBatch();
-		writeByte(SPI_CONFIGURE_MASTER);
-		writeByte(spiNum << 5);
-		writeByte(0x00);
-		endBatch();
+	public void spiClose(int spiNum) throws IOException {
+		CommandEncoder cmd = beginCommand(SPI_CONFIGURE_MASTER);
+		cmd.writeByte(spiNum << 5);
+		cmd.writeByte(0x00);
+		send(cmd);
 	}
 
-	synchronized public void setPinSpi(int pin, int mode, boolean enable,
+	public void setPinSpi(int pin, int mode, boolean enable,
 			int spiNum) throws IOException {
-		beginBatch();
-		writeByte(SET_PIN_SPI);
-		writeByte(pin);
-		writeByte((1 << 4) | (mode << 2) | spiNum);
-		endBatch();
+		CommandEncoder cmd = beginCommand(SET_PIN_SPI);
+		cmd.writeByte(pin);
+		cmd.writeByte((1 << 4) | (mode << 2) | spiNum);
+		send(cmd);
 	}
 
-	synchronized public void spiMasterRequest(int spiNum, int ssPin,
+	public void spiMasterRequest(int spiNum, int ssPin,
 			byte data[], int dataBytes, int totalBytes, int responseBytes)
 			throws IOException {
 		final boolean dataNeqTotal = (dataBytes != totalBytes);
 		final boolean resNeqTotal = (responseBytes != totalBytes);
-		beginBatch();
-		writeByte(SPI_MASTER_REQUEST);
-		writeByte((spiNum << 6) | ssPin);
-		writeByte((dataNeqTotal ? 0x80 : 0x00) | (resNeqTotal ? 0x40 : 0x00)
+		CommandEncoder cmd = beginCommand(SPI_MASTER_REQUEST);
+		cmd.writeByte((spiNum << 6) | ssPin);
+		cmd.writeByte((dataNeqTotal ? 0x80 : 0x00) | (resNeqTotal ? 0x40 : 0x00)
 				| totalBytes - 1);
 		if (dataNeqTotal) {
-			writeByte(dataBytes);
+			cmd.writeByte(dataBytes);
 		}
 		if (resNeqTotal) {
-			writeByte(responseBytes);
-		}
-		for (int i = 0; i < dataBytes; ++i) {
-			writeByte(((int) data[i]) & 0xFF);
+			cmd.writeByte(responseBytes);
 		}
-		endBatch();
+		cmd.writeBytes(data, 0, dataBytes);
+		send(cmd);
 	}
 
-	synchronized public void i2cConfigureMaster(int i2cNum, Rate rate,
+	public void i2cConfigureMaster(int i2cNum, Rate rate,
 			boolean smbusLevels) throws IOException {
 		int rateBits = (rate == Rate.RATE_1MHz ? 3
 				: (rate == Rate.RATE_400KHz ? 2 : 1));
-		beginBatch();
-		writeByte(I2C_CONFIGURE_MASTER);
-		writeByte((smbusLevels ? 0x80 : 0) | (rateBits << 5) | i2cNum);
-		endBatch();
+		CommandEncoder cmd = beginCommand(I2C_CONFIGURE_MASTER);
+		cmd.writeByte((smbusLevels ? 0x80 : 0) | (rateBits << 5) | i2cNum);
+		send(cmd);
 	}
 
-	synchronized public void i2cClose(int i2cNum) throws IOException {
-		beginBatch();
-		writeByte(I2C_CONFIGURE_MASTER);
-		writeByte(i2cNum);
-		endBatch();
+	public void i2cClose(int i2cNum) throws IOException {
+		CommandEncoder cmd = beginCommand(I2C_CONFIGURE_MASTER);
+		cmd.writeByte(i2cNum);
+		send(cmd);
 	}
 
-	synchronized public void icspOpen() throws IOException {
-		beginBatch();
-		writeByte(ICSP_CONFIG);
-		writeByte(0x01);
-		endBatch();
+	public void icspOpen() throws IOException {
+		CommandEncoder cmd = beginCommand(ICSP_CONFIG);
+		cmd.writeByte(0x01);
+		send(cmd);
 	}
 
-	synchronized public void icspClose() throws IOException {
-		beginBatch();
-		writeByte(ICSP_CONFIG);
-		writeByte(0x00);
-		endBatch();
+	public void icspClose() throws IOException {
+		CommandEncoder cmd = beginCommand(ICSP_CONFIG);
+		cmd.writeByte(0x00);
+		send(cmd);
 	}
 
-	synchronized public void icspEnter() throws IOException {
-		beginBatch();
-		writeByte(ICSP_PROG_ENTER);
-		endBatch();
+	public void icspEnter() throws IOException {
+		CommandEncoder cmd = beginCommand(ICSP_PROG_ENTER);
+		send(cmd);
 	}
 
-	synchronized public void icspExit() throws IOException {
-		beginBatch();
-		writeByte(ICSP_PROG_EXIT);
-		endBatch();
+	public void icspExit() throws IOException {
+		CommandEncoder cmd = beginCommand(ICSP_PROG_EXIT);
+		send(cmd);
 	}
 
-	synchronized public void icspSix(int instruction) throws IOException {
-		beginBatch();
-		writeByte(ICSP_SIX);
-		writeThreeBytes(instruction);
-		endBatch();
+	public void icspSix(int instruction) throws IOException {
+		CommandEncoder cmd = beginCommand(ICSP_SIX);
+		cmd.writeThreeBytes(instruction);
+		send(cmd);
 	}
 
-	synchronized public void icspRegout() throws IOException {
-		beginBatch();
-		writeByte(ICSP_REGOUT);
-		endBatch();
+	public void icspRegout() throws IOException {
+		CommandEncoder cmd = beginCommand(ICSP_REGOUT);
+		send(cmd);
 	}
 
 	public interface IncomingHandler {
@@ -516,8 +531,8 @@ class IOIOProtocol {
 
 		public void handleAnalogPinStatus(int pin, boolean open);
 
-		public void handleReportAnalogInStatus(List<Integer> pins,
-				List<Integer> values);
+		public void handleReportAnalogInStatus(int[] pins, int[] values,
+				int numPins);
 
 		public void handleUartOpen(int uartNum);
 
@@ -562,31 +577,57 @@ class IOIOProtocol {
 	class IncomingThread extends Thread {
 		private int readOffset_ = 0;
 		private int validBytes_ = 0;
-		private byte[] inbuf_ = new byte[64];
-
-		private List<Integer> analogPinValues_ = new ArrayList<Integer>();
-		private List<Integer> analogFramePins_ = new ArrayList<Integer>();
-		private List<Integer> newFramePins_ = new ArrayList<Integer>();
-		private Set<Integer> removedPins_ = new HashSet<Integer>();
-		private Set<Integer> addedPins_ = new HashSet<Integer>();
-
-		private void calculateAnalogFrameDelta() {
-			removedPins_.clear();
-			removedPins_.addAll(analogFramePins_);
-			addedPins_.clear();
-			addedPins_.addAll(newFramePins_);
-			// Remove the intersection from both.
-			for (Iterator<Integer> it = removedPins_.iterator(); it.hasNext();) {
-				Integer current = it.next();
-				if (addedPins_.contains(current)) {
-					it.remove();
-					addedPins_.remove(current);
+		private final byte[] inbuf_;
+
+		// Receive statistics. Only written by this thread.
+		private volatile long bytesReceived_ = 0;
+		private volatile long framesReceived_ = 0;
+		private volatile int bytesPerSecond_ = 0;
+		private volatile int framesPerSecond_ = 0;
+		private volatile long statsWindowStart_ = System.nanoTime();
+		private long statsWindowBytes_ = 0;
+		private long statsWindowFrames_ = 0;
+
+		IncomingThread(int inbufSize) {
+			inbuf_ = new byte[inbufSize];
+		}
+
+		// The number of pins in a frame is sent as a single byte.
+		private int[] analogPinValues_ = new int[256];
+		private int[] analogFramePins_ = new int[256];
+		private int numAnalogFramePins_ = 0;
+		private int[] newFramePins_ = new int[256];
+		private int numNewFramePins_ = 0;
+
+		private boolean contains(int[] pins, int numPins, int pin) {
+			for (int i = 0; i < numPins; ++i) {
+				if (pins[i] == pin) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Reports the pins that have been removed from and added to the analog
+		 * frame, then makes the new frame format the current one.
+		 */
+		private void handleAnalogFrameDelta() {
+			for (int i = 0; i < numAnalogFramePins_; ++i) {
+				if (!contains(newFramePins_, numNewFramePins_, analogFramePins_[i])) {
+					handler_.handleAnalogPinStatus(analogFramePins_[i], false);
+				}
+			}
+			for (int i = 0; i < numNewFramePins_; ++i) {
+				if (!contains(analogFramePins_, numAnalogFramePins_, newFramePins_[i])) {
+					handler_.handleAnalogPinStatus(newFramePins_[i], true);
 				}
 			}
 			// swap
-			List<Integer> temp = analogFramePins_;
+			int[] temp = analogFramePins_;
 			analogFramePins_ = newFramePins_;
 			newFramePins_ = temp;
+			numAnalogFramePins_ = numNewFramePins_;
 		}
 
 		private void fillBuf() throws IOException {
@@ -597,6 +638,8 @@ class IOIOProtocol {
 				}
 				//Log.v(TAG, "received " + validBytes_ + " bytes");
 				readOffset_ = 0;
+				bytesReceived_ += validBytes_;
+				updateStats();
 			} catch (IOException e) {
 				Log.i(TAG, "IOIO disconnected");
 				throw e;
@@ -614,11 +657,42 @@ class IOIOProtocol {
 		}
 
 		private void readBytes(int size, byte[] buffer) throws IOException {
-			for (int i = 0; i < size; ++i) {
-				buffer[i] = (byte) readByte();
+			int copied = 0;
+			while (copied < size) {
+				if (readOffset_ == validBytes_) {
+					fillBuf();
+				}
+				int chunk = Math.min(size - copied, validBytes_ - readOffset_);
+				System.arraycopy(inbuf_, readOffset_, buffer, copied, chunk);
+				readOffset_ += chunk;
+				copied += chunk;
 			}
 		}
 
+		/**
+		 * Starts a new statistics window once a second, and calculates the
+		 * rates of the window that has just ended.
+		 */
+		private void updateStats() {
+			final long now = System.nanoTime();
+			final long elapsed = now - statsWindowStart_;
+			if (elapsed >= 1000000000L) {
+				bytesPerSecond_ = (int) ((bytesReceived_ - statsWindowBytes_) * 1000000000L / elapsed);
+				framesPerSecond_ = (int) ((framesReceived_ - statsWindowFrames_) * 1000000000L / elapsed);
+				statsWindowBytes_ = bytesReceived_;
+				statsWindowFrames_ = framesReceived_;
+				statsWindowStart_ = now;
+			}
+		}
+
+		/**
+		 * Rates are only updated while data is received, so they are
+		 * considered stale after two windows without any data.
+		 */
+		private boolean statsStale() {
+			return System.nanoTime() - statsWindowStart_ > 2000000000L;
+		}
+
 		@Override
 		public void run() {
 			super.run();
@@ -630,7 +704,9 @@ class IOIOProtocol {
 			byte[] data = new byte[256];
 			try {
 				while (true) {
-					switch (arg1 = readByte()) {
+					arg1 = readByte();
+					++framesReceived_;
+					switch (arg1) {
 					case ESTABLISH_CONNECTION:
 						if (readByte() != 'I' || readByte() != 'O'
 								|| readByte() != 'I' || readByte() != 'O') {
@@ -649,7 +725,7 @@ class IOIOProtocol {
 						break;
 
 					case SOFT_RESET:
-						analogFramePins_.clear();
+						numAnalogFramePins_ = 0;
 						handler_.handleSoftReset();
 						break;
 
@@ -675,32 +751,25 @@ class IOIOProtocol {
 
 					case REPORT_ANALOG_IN_FORMAT:
 						numPins = readByte();
-						newFramePins_.clear();
 						for (int i = 0; i < numPins; ++i) {
-							newFramePins_.add(readByte());
-						}
-						calculateAnalogFrameDelta();
-						for (Integer i : removedPins_) {
-							handler_.handleAnalogPinStatus(i, false);
-						}
-						for (Integer i : addedPins_) {
-							handler_.handleAnalogPinStatus(i, true);
+							newFramePins_[i] = readByte();
 						}
+						numNewFramePins_ = numPins;
+						handleAnalogFrameDelta();
 						break;
 
 					case REPORT_ANALOG_IN_STATUS:
-						numPins = analogFramePins_.size();
+						numPins = numAnalogFramePins_;
 						int header = 0;
-						analogPinValues_.clear();
 						for (int i = 0; i < numPins; ++i) {
 							if (i % 4 == 0) {
 								header = readByte();
 							}
-							analogPinValues_.add((readByte() << 2) | (header & 0x03));
+							analogPinValues_[i] = (readByte() << 2) | (header & 0x03);
 							header >>= 2;
 						}
 						handler_.handleReportAnalogInStatus(analogFramePins_,
-								analogPinValues_);
+								analogPinValues_, numPins);
 						break;
 
 					case UART_REPORT_TX_STATUS:
@@ -712,9 +781,7 @@ class IOIOProtocol {
 
 					case UART_DATA:
 						arg1 = readByte();
-						for (int i = 0; i < (arg1 & 0x3F) + 1; ++i) {
-							data[i] = (byte) readByte();
-						}
+						readBytes((arg1 & 0x3F) + 1, data);
 						handler_.handleUartData(arg1 >> 6, (arg1 & 0x3F) + 1,
 								data);
 						break;
@@ -731,9 +798,7 @@ class IOIOProtocol {
 					case SPI_DATA:
 						arg1 = readByte();
 						arg2 = readByte();
-						for (int i = 0; i < (arg1 & 0x3F) + 1; ++i) {
-							data[i] = (byte) readByte();
-						}
+						readBytes((arg1 & 0x3F) + 1, data);
 						handler_.handleSpiData(arg1 >> 6, arg2 & 0x3F, data,
 								(arg1 & 0x3F) + 1);
 						break;
@@ -767,9 +832,7 @@ class IOIOProtocol {
 						arg1 = readByte();
 						arg2 = readByte();
 						if (arg2 != 0xFF) {
-							for (int i = 0; i < arg2; ++i) {
-								data[i] = (byte) readByte();
-							}
+							readBytes(arg2, data);
 						}
 						handler_.handleI2cResult(arg1 & 0x03, arg2, data);
 						break;
@@ -793,8 +856,7 @@ class IOIOProtocol {
 						break;
 
 					case ICSP_RESULT:
-						data[0] = (byte) readByte();
-						data[1] = (byte) readByte();
+						readBytes(2, data);
 						handler_.handleIcspResult(2, data);
 						break;
 
@@ -849,13 +911,44 @@ class IOIOProtocol {
 	private final InputStream in_;
 	private final OutputStream out_;
 	private final IncomingHandler handler_;
-	private final IncomingThread thread_ = new IncomingThread();
+	private final IncomingThread thread_;
 
 	public IOIOProtocol(InputStream in, OutputStream out,
 			IncomingHandler handler) {
+		this(in, out, handler, Constants.INCOMING_BUFFER_SIZE);
+	}
+
+	/**
+	 * @param inbufSize
+	 *            The size of the receive buffer, i.e. the maximum number of
+	 *            bytes requested from the input stream at once.
+	 */
+	public IOIOProtocol(InputStream in, OutputStream out,
+			IncomingHandler handler, int inbufSize) {
 		in_ = in;
 		out_ = out;
 		handler_ = handler;
+		thread_ = new IncomingThread(inbufSize);
 		thread_.start();
 	}
+
+	/** Total number of bytes received since the connection was established. */
+	public long getBytesReceived() {
+		return thread_.bytesReceived_;
+	}
+
+	/** Total number of incoming messages parsed since the connection was established. */
+	public long getFramesReceived() {
+		return thread_.framesReceived_;
+	}
+
+	/** Number of bytes received during the last second. */
+	public int getBytesPerSecond() {
+		return thread_.statsStale() ? 0 : thread_.bytesPerSecond_;
+	}
+
+	/** Number of incoming messages parsed during the last second. */
+	public int getFramesPerSecond() {
+		return thread_.statsStale() ? 0 : thread_.framesPerSecond_;
+	}
 }
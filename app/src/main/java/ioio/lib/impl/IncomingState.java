@@ -34,7 +34,6 @@ import ioio.lib.impl.IOIOProtocol.IncomingHandler;
 import ioio.lib.spi.Log;
 
 import java.util.HashSet;
-import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -50,6 +49,15 @@ class IncomingState implements IncomingHandler {
 		void setValue(int value);
 	}
 
+	interface AnalogPinListener extends InputPinListener {
+		/**
+		 * The IOIO has acknowledged that the pin stopped sampling, and this
+		 * listener has been removed. Called without the lock of the incoming
+		 * state held.
+		 */
+		void samplingStopped();
+	}
+
 	interface DisconnectListener {
 		void disconnected();
 	}
@@ -68,11 +76,12 @@ class IncomingState implements IncomingHandler {
 			listeners_.add(listener);
 		}
 
-		void closeCurrentListener() {
+		InputPinListener closeCurrentListener() {
 			if (currentOpen_) {
 				currentOpen_ = false;
-				listeners_.remove();
+				return listeners_.remove();
 			}
+			return null;
 		}
 
 		void openNextListener() {
@@ -86,6 +95,10 @@ class IncomingState implements IncomingHandler {
 			assert (currentOpen_);
 			listeners_.peek().setValue(v);
 		}
+
+		boolean isOpen(InputPinListener listener) {
+			return currentOpen_ && listeners_.peek() == listener;
+		}
 	}
 
 	class DataModuleState {
@@ -159,6 +172,22 @@ class IncomingState implements IncomingHandler {
 		return connection_ == ConnectionState.CONNECTED;
 	}
 
+	/**
+	 * Wait until the IOIO has acknowledged opening the given input pins, each
+	 * for the listener at the same position.
+	 */
+	synchronized public void waitInputPinsOpen(int[] pins,
+			InputPinListener[] listeners) throws InterruptedException,
+			ConnectionLostException {
+		for (int i = 0; i < pins.length; ++i) {
+			while (connection_ != ConnectionState.DISCONNECTED
+					&& !intputPinStates_[pins[i]].isOpen(listeners[i])) {
+				wait();
+			}
+			checkNotDisconnected();
+		}
+	}
+
 	synchronized public void waitDisconnect() throws InterruptedException {
 		while (connection_ != ConnectionState.DISCONNECTED) {
 			wait();
@@ -207,14 +236,13 @@ class IncomingState implements IncomingHandler {
 		// logMethod("handleConnectionLost");
 		synchronized (this) {
 			connection_ = ConnectionState.DISCONNECTED;
+			// Wake up waiters first, they may hold locks the listeners need.
+			notifyAll();
 		}
 		for (DisconnectListener listener : disconnectListeners_) {
 			listener.disconnected();
 		}
 		disconnectListeners_.clear();
-		synchronized (this) {
-			notifyAll();
-		}
 	}
 
 	@Override
@@ -265,10 +293,17 @@ class IncomingState implements IncomingHandler {
 	@Override
 	public void handleAnalogPinStatus(int pin, boolean open) {
 		// logMethod("handleAnalogPinStatus", pin, open);
-		if (open) {
-			intputPinStates_[pin].openNextListener();
-		} else {
-			intputPinStates_[pin].closeCurrentListener();
+		InputPinListener closed = null;
+		synchronized (this) {
+			if (open) {
+				intputPinStates_[pin].openNextListener();
+			} else {
+				closed = intputPinStates_[pin].closeCurrentListener();
+			}
+			notifyAll();
+		}
+		if (closed instanceof AnalogPinListener) {
+			((AnalogPinListener) closed).samplingStopped();
 		}
 	}
 
@@ -410,11 +445,11 @@ class IncomingState implements IncomingHandler {
 	}
 
 	@Override
-	public void handleReportAnalogInStatus(List<Integer> pins,
-			List<Integer> values) {
-		// logMethod("handleReportAnalogInStatus", pins, values);
-		for (int i = 0; i < pins.size(); ++i) {
-			intputPinStates_[pins.get(i)].setValue(values.get(i));
+	public void handleReportAnalogInStatus(int[] pins, int[] values,
+			int numPins) {
+		// logMethod("handleReportAnalogInStatus", pins, values, numPins);
+		for (int i = 0; i < numPins; ++i) {
+			intputPinStates_[pins[i]].setValue(values[i]);
 		}
 	}
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011 Ytai Ben-Tsvi. All rights reserved.
+ *  
+ * 
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL ARSHAN POURSOHI OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied.
+ */
+package ioio.lib.impl;
+
+import ioio.lib.api.AnalogInput;
+import ioio.lib.api.Closeable;
+import ioio.lib.api.DigitalInput;
+import ioio.lib.api.DigitalOutput;
+import ioio.lib.api.PinSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class PinSetImpl implements PinSet {
+	private final DigitalInput[] digitalInputs_;
+	private final DigitalOutput[] digitalOutputs_;
+	private final AnalogInput[] analogInputs_;
+	private final List<Closeable> pins_ = new ArrayList<Closeable>();
+
+	PinSetImpl(int numPins) {
+		digitalInputs_ = new DigitalInput[numPins];
+		digitalOutputs_ = new DigitalOutput[numPins];
+		analogInputs_ = new AnalogInput[numPins];
+	}
+
+	void addDigitalInput(int pin, DigitalInput input) {
+		digitalInputs_[pin] = input;
+		pins_.add(input);
+	}
+
+	void addDigitalOutput(int pin, DigitalOutput output) {
+		digitalOutputs_[pin] = output;
+		pins_.add(output);
+	}
+
+	void addAnalogInput(int pin, AnalogInput input) {
+		analogInputs_[pin] = input;
+		pins_.add(input);
+	}
+
+	@Override
+	public DigitalInput getDigitalInput(int pin) {
+		return checkInSet(digitalInputs_, pin, "digital input");
+	}
+
+	@Override
+	public DigitalOutput getDigitalOutput(int pin) {
+		return checkInSet(digitalOutputs_, pin, "digital output");
+	}
+
+	@Override
+	public AnalogInput getAnalogInput(int pin) {
+		return checkInSet(analogInputs_, pin, "analog input");
+	}
+
+	@Override
+	synchronized public void close() {
+		for (Closeable pin : pins_) {
+			pin.close();
+		}
+		pins_.clear();
+	}
+
+	private static <T> T checkInSet(T[] pins, int pin, String function) {
+		if (pin < 0 || pin >= pins.length || pins[pin] == null) {
+			throw new IllegalArgumentException("Pin set has no " + function
+					+ " on pin " + pin);
+		}
+		return pins[pin];
+	}
+}
@@ -32,76 +32,100 @@ import ioio.lib.spi.Log;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Queue;
-import java.util.concurrent.ArrayBlockingQueue;
 
 class QueueInputStream extends InputStream {
 	private enum State {
 		OPEN, CLOSED, KILLED
 	};
 
-	private final Queue<Byte> queue_ = new ArrayBlockingQueue<Byte>(
-			Constants.BUFFER_SIZE);
-	private State state_ = State.OPEN;
+	// Written only by write() (the IOIO thread) and read only by the read()
+	// methods, so no lock is needed to move the data.
+	private final ByteRingBuffer queue_;
+	private volatile State state_ = State.OPEN;
+	// Set by a reader that is about to wait() for data, so that the writer only
+	// takes the lock when somebody needs to be woken up.
+	private volatile boolean readerWaiting_ = false;
+	private volatile long dropped_ = 0;
+	// Serializes readers, the queue only supports a single consumer.
+	private final Object readLock_ = new Object();
+	private final byte[] oneByte_ = new byte[1];
+
+	public QueueInputStream() {
+		this(Constants.BUFFER_SIZE);
+	}
+
+	public QueueInputStream(int capacity) {
+		queue_ = new ByteRingBuffer(capacity);
+	}
 
 	@Override
-	synchronized public int read() throws IOException {
-		try {
-			while (state_ == State.OPEN && queue_.isEmpty()) {
-				wait();
-			}
-			if (state_ == State.KILLED) {
-				throw new IOException("Stream has been closed");
-			}
-			if (state_ == State.CLOSED && queue_.isEmpty()) {
+	public int read() throws IOException {
+		synchronized (readLock_) {
+			if (read(oneByte_, 0, 1) == -1) {
 				return -1;
 			}
-			return ((int) queue_.remove()) & 0xFF;
-		} catch (InterruptedException e) {
-			throw new IOException("Interrupted");
+			return ((int) oneByte_[0]) & 0xFF;
 		}
 	}
 
 	@Override
-	synchronized public int read(byte[] b, int off, int len) throws IOException {
+	public int read(byte[] b, int off, int len) throws IOException {
 		if (len == 0) {
 			return 0;
 		}
-		try {
-			while (state_ == State.OPEN && queue_.isEmpty()) {
-				wait();
+		synchronized (readLock_) {
+			if (queue_.isEmpty()) {
+				waitForData();
 			}
 			if (state_ == State.KILLED) {
 				throw new IOException("Stream has been closed");
 			}
-			if (state_ == State.CLOSED && queue_.isEmpty()) {
+			int n = queue_.read(b, off, len);
+			if (n == 0) {
+				// Closed and drained.
 				return -1;
 			}
-			if (len > queue_.size()) {
-				len = queue_.size();
-			}
-			for (int i = 0; i < len; ++i) {
-				b[off++] = queue_.remove();
+			return n;
+		}
+	}
+
+	synchronized private void waitForData() throws IOException {
+		try {
+			readerWaiting_ = true;
+			while (state_ == State.OPEN && queue_.isEmpty()) {
+				wait();
 			}
-			return len;
 		} catch (InterruptedException e) {
 			throw new IOException("Interrupted");
+		} finally {
+			readerWaiting_ = false;
 		}
 	}
 
-	synchronized public void write(byte[] data, int size) {
-		for (int i = 0; i < size; ++i) {
-			if (queue_.size() == Constants.BUFFER_SIZE) {
-				Log.e("QueueInputStream", "Buffer overflow, discarding data");
-				break;
+	public void write(byte[] data, int size) {
+		int written = queue_.write(data, 0, size);
+		if (written < size) {
+			dropped_ += size - written;
+			Log.e("QueueInputStream", "Buffer overflow, discarded "
+					+ (size - written) + " bytes");
+		}
+		if (readerWaiting_) {
+			synchronized (this) {
+				notifyAll();
 			}
-			queue_.add(data[i]);
 		}
-		notifyAll();
+	}
+
+	/**
+	 * @return The total number of bytes that were discarded because the buffer
+	 *         was full.
+	 */
+	public long getDroppedCount() {
+		return dropped_;
 	}
 
 	@Override
-	synchronized public int available() throws IOException {
+	public int available() throws IOException {
 		return queue_.size();
 	}
 
@@ -76,7 +76,7 @@ class SpiMasterImpl extends AbstractResource implements SpiMaster,
 
 	private final Queue<SpiResult> pendingRequests_ = new ConcurrentLinkedQueue<SpiMasterImpl.SpiResult>();
 	private final FlowControlledPacketSender outgoing_ = new FlowControlledPacketSender(
-			this);
+			ioio_.flowController_, this);
 
 	private final int spiNum_;
 	private final Map<Integer, Integer> ssPinToIndex_;
@@ -194,4 +194,18 @@ class SpiMasterImpl extends AbstractResource implements SpiMaster,
 		}
 	}
 
+	@Override
+	public int getOutgoingCredit() {
+		return outgoing_.getCredit();
+	}
+
+	@Override
+	public int getQueuedRequests() {
+		return outgoing_.getQueuedPackets();
+	}
+
+	@Override
+	public int getQueuedOutgoingBytes() {
+		return outgoing_.getQueuedBytes();
+	}
 }
@@ -36,19 +36,38 @@ import ioio.lib.impl.IncomingState.DataModuleListener;
 import ioio.lib.spi.Log;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 
 class TwiMasterImpl extends AbstractResource implements TwiMaster,
 		DataModuleListener, Sender {
-	class TwiResult implements Result {
+	/** A request, from being queued until its response arrives. */
+	abstract class Transaction implements Packet {
+		int writeSize_;
+		byte[] writeData_;
+		boolean tenBitAddr_;
+		int addr_;
+		int readSize_;
+		byte[] readData_;
+
+		@Override
+		public int getSize() {
+			return writeSize_ + 4;
+		}
+
+		/** Called on the incoming thread when the response arrived. */
+		abstract void complete(boolean success);
+
+		/** Called when the connection was lost before the response. */
+		abstract void disconnected();
+	}
+
+	class TwiResult extends Transaction implements Result {
 		boolean ready_ = false;
 		boolean success_;
-		final byte[] data_;
-		
-		public TwiResult(byte[] data) {
-			data_ = data;
-		}
 
 		@Override
 		public synchronized boolean waitReady() throws ConnectionLostException,
@@ -59,25 +78,73 @@ class TwiMasterImpl extends AbstractResource implements TwiMaster,
 			checkState();
 			return success_;
 		}
+
+		@Override
+		synchronized void complete(boolean success) {
+			ready_ = true;
+			success_ = success;
+			notify();
+		}
+
+		@Override
+		synchronized void disconnected() {
+			notify();
+		}
 	}
 
-	class OutgoingPacket implements Packet {
-		int writeSize_;
-		byte[] writeData_;
-		boolean tenBitAddr_;
-		int addr_;
-		int readSize_;
+	/** Reported to a callback, recycled afterwards. */
+	class CallbackTransaction extends Transaction implements Runnable {
+		Callback callback_;
+		Executor executor_;
+		boolean success_;
+		boolean connectionLost_;
 
 		@Override
-		public int getSize() {
-			return writeSize_ + 4;
+		void complete(boolean success) {
+			success_ = success;
+			dispatch();
+		}
+
+		@Override
+		void disconnected() {
+			connectionLost_ = true;
+			dispatch();
+		}
+
+		private void dispatch() {
+			if (executor_ == null) {
+				run();
+				return;
+			}
+			try {
+				executor_.execute(this);
+			} catch (RuntimeException e) {
+				// E.g. the executor has been shut down. Must not end the
+				// calling thread, which may be the incoming thread.
+				Log.e("TwiImpl", "Failed to dispatch callback", e);
+				recycle(this);
+			}
 		}
 
+		@Override
+		public void run() {
+			Callback callback = callback_;
+			boolean success = success_;
+			boolean connectionLost = connectionLost_;
+			recycle(this);
+			if (connectionLost) {
+				callback.onConnectionLost();
+			} else {
+				callback.onComplete(success);
+			}
+		}
 	}
 
-	private final Queue<TwiResult> pendingRequests_ = new ConcurrentLinkedQueue<TwiMasterImpl.TwiResult>();
+	private final Queue<Transaction> pendingRequests_ = new ConcurrentLinkedQueue<Transaction>();
+	// Recycled callback transactions, guarded by itself.
+	private final List<CallbackTransaction> freeTransactions_ = new ArrayList<CallbackTransaction>();
 	private final FlowControlledPacketSender outgoing_ = new FlowControlledPacketSender(
-			this);
+			ioio_.flowController_, this);
 	private final int twiNum_;
 
 	TwiMasterImpl(IOIOImpl ioio, int twiNum) throws ConnectionLostException {
@@ -86,14 +153,21 @@ class TwiMasterImpl extends AbstractResource implements TwiMaster,
 	}
 
 	@Override
-	synchronized public void disconnected() {
-		super.disconnected();
-		outgoing_.kill();
-		for (TwiResult tr : pendingRequests_) {
-			synchronized (tr) {
-				tr.notify();
+	public void disconnected() {
+		// Callbacks may call back into this instance, so they are only run
+		// after its lock has been released.
+		List<Transaction> failed = new ArrayList<Transaction>();
+		synchronized (this) {
+			super.disconnected();
+			outgoing_.kill();
+			Transaction tr;
+			while ((tr = pendingRequests_.poll()) != null) {
+				failed.add(tr);
 			}
 		}
+		for (Transaction tr : failed) {
+			tr.disconnected();
+		}
 	}
 
 	@Override
@@ -110,37 +184,76 @@ class TwiMasterImpl extends AbstractResource implements TwiMaster,
 			byte[] writeData, int writeSize, byte[] readData, int readSize)
 			throws ConnectionLostException {
 		checkState();
-		TwiResult result = new TwiResult(readData);
+		TwiResult result = new TwiResult();
+		enqueue(result, address, tenBitAddr, writeData, writeSize, readData,
+				readSize);
+		return result;
+	}
+
+	@Override
+	public void writeReadAsync(int address, boolean tenBitAddr,
+			byte[] writeData, int writeSize, byte[] readData, int readSize,
+			Callback callback, Executor executor)
+			throws ConnectionLostException {
+		checkState();
+		CallbackTransaction tr = obtain();
+		tr.callback_ = callback;
+		tr.executor_ = executor;
+		tr.connectionLost_ = false;
+		enqueue(tr, address, tenBitAddr, writeData, writeSize, readData,
+				readSize);
+	}
 
-		OutgoingPacket p = new OutgoingPacket();
-		p.writeSize_ = writeSize;
-		p.writeData_ = writeData;
-		p.tenBitAddr_ = tenBitAddr;
-		p.readSize_ = readSize;
-		p.addr_ = address;
+	private void enqueue(Transaction tr, int address, boolean tenBitAddr,
+			byte[] writeData, int writeSize, byte[] readData, int readSize) {
+		tr.writeSize_ = writeSize;
+		tr.writeData_ = writeData;
+		tr.tenBitAddr_ = tenBitAddr;
+		tr.readSize_ = readSize;
+		tr.readData_ = readData;
+		tr.addr_ = address;
 
 		synchronized (this) {
-			pendingRequests_.add(result);
+			pendingRequests_.add(tr);
 			try {
-				outgoing_.write(p);
+				outgoing_.write(tr);
 			} catch (IOException e) {
-				Log.e("SpiMasterImpl", "Exception caught", e);
+				Log.e("TwiImpl", "Caught exception", e);
 			}
 		}
-		return result;
+	}
+
+	private CallbackTransaction obtain() {
+		synchronized (freeTransactions_) {
+			if (!freeTransactions_.isEmpty()) {
+				return freeTransactions_.remove(freeTransactions_.size() - 1);
+			}
+		}
+		return new CallbackTransaction();
+	}
+
+	private void recycle(CallbackTransaction tr) {
+		tr.callback_ = null;
+		tr.executor_ = null;
+		tr.writeData_ = null;
+		tr.readData_ = null;
+		synchronized (freeTransactions_) {
+			freeTransactions_.add(tr);
+		}
 	}
 
 	@Override
 	public void dataReceived(byte[] data, int size) {
-		TwiResult result = pendingRequests_.remove();
-		synchronized (result) {
-			result.ready_ = true;
-			result.success_ = (size != 0xFF);
-			if (result.success_ && size > 0) {
-				System.arraycopy(data, 0, result.data_, 0, size);
-			}
-			result.notify();
+		Transaction tr = pendingRequests_.poll();
+		if (tr == null) {
+			// Already failed by a disconnect.
+			return;
 		}
+		boolean success = (size != 0xFF);
+		if (success && size > 0) {
+			System.arraycopy(data, 0, tr.readData_, 0, size);
+		}
+		tr.complete(success);
 	}
 
 	@Override
@@ -157,12 +270,27 @@ class TwiMasterImpl extends AbstractResource implements TwiMaster,
 
 	@Override
 	public void send(Packet packet) {
-		OutgoingPacket p = (OutgoingPacket) packet;
+		Transaction tr = (Transaction) packet;
 		try {
-			ioio_.protocol_.i2cWriteRead(twiNum_, p.tenBitAddr_, p.addr_,
-					p.writeSize_, p.readSize_, p.writeData_);
+			ioio_.protocol_.i2cWriteRead(twiNum_, tr.tenBitAddr_, tr.addr_,
+					tr.writeSize_, tr.readSize_, tr.writeData_);
 		} catch (IOException e) {
 			Log.e("TwiImpl", "Caught exception", e);
 		}
 	}
+
+	@Override
+	public int getOutgoingCredit() {
+		return outgoing_.getCredit();
+	}
+
+	@Override
+	public int getQueuedRequests() {
+		return outgoing_.getQueuedPackets();
+	}
+
+	@Override
+	public int getQueuedOutgoingBytes() {
+		return outgoing_.getQueuedBytes();
+	}
 }
@@ -45,14 +45,18 @@ class UartImpl extends AbstractResource implements DataModuleListener, Sender, U
 	private final int uartNum_;
 	private final int rxPinNum_;
 	private final int txPinNum_;
-	private final FlowControlledOutputStream outgoing_ = new FlowControlledOutputStream(this, MAX_PACKET);
-	private final QueueInputStream incoming_ = new QueueInputStream();
+	private final FlowControlledOutputStream outgoing_;
+	private final QueueInputStream incoming_;
 	
-	public UartImpl(IOIOImpl ioio, int txPin, int rxPin, int uartNum) throws ConnectionLostException {
+	public UartImpl(IOIOImpl ioio, int txPin, int rxPin, int uartNum,
+			int bufferSize) throws ConnectionLostException {
 		super(ioio);
 		uartNum_ = uartNum;
 		rxPinNum_ = rxPin;
 		txPinNum_ = txPin;
+		outgoing_ = new FlowControlledOutputStream(ioio.flowController_, this,
+				MAX_PACKET, bufferSize);
+		incoming_ = new QueueInputStream(bufferSize);
 	}
 
 	@Override
@@ -61,9 +65,9 @@ class UartImpl extends AbstractResource implements DataModuleListener, Sender, U
 	}
 
 	@Override
-	public void send(byte[] data, int size) {
+	public void send(byte[] data, int offset, int size) {
 		try {
-			ioio_.protocol_.uartData(uartNum_, size, data);
+			ioio_.protocol_.uartData(uartNum_, size, data, offset);
 		} catch (IOException e) {
 			Log.e("UartImpl", e.getMessage());
 		}
@@ -100,6 +104,21 @@ class UartImpl extends AbstractResource implements DataModuleListener, Sender, U
 		return outgoing_;
 	}
 
+	@Override
+	public long getDroppedBytes() {
+		return incoming_.getDroppedCount();
+	}
+
+	@Override
+	public int getOutgoingCredit() {
+		return outgoing_.getCredit();
+	}
+
+	@Override
+	public int getQueuedOutgoingBytes() {
+		return outgoing_.getQueuedBytes();
+	}
+
 	@Override
 	public void reportAdditionalBuffer(int bytesRemaining) {
 		outgoing_.readyToSend(bytesRemaining);
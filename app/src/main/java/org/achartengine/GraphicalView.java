@@ -52,6 +52,15 @@ public class GraphicalView extends View {
   private Rect mRect = new Rect();
   /** The user interface thread handler. */
   private Handler mHandler;
+  /** If a repaint is posted to the handler and has not run yet. */
+  private volatile boolean mRepaintPending;
+  /** Invalidates the whole view for a posted repaint. */
+  private final Runnable mRepaint = new Runnable() {
+    public void run() {
+      mRepaintPending = false;
+      invalidate();
+    }
+  };
   /** The zoom buttons rectangle. */
   private RectF mZoomR = new RectF();
   /** The zoom in icon. */
@@ -305,14 +314,15 @@ public class GraphicalView extends View {
   }
 
   /**
-   * Schedule a view content repaint.
+   * Schedule a view content repaint. Calls before a scheduled repaint has run
+   * are coalesced into it.
    */
   public void repaint() {
-    mHandler.post(new Runnable() {
-      public void run() {
-        invalidate();
-      }
-    });
+    if (mRepaintPending) {
+      return;
+    }
+    mRepaintPending = true;
+    mHandler.post(mRepaint);
   }
 
   /**
@@ -25,6 +25,7 @@ import org.achartengine.renderer.DefaultRenderer;
 import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer.Orientation;
+import org.achartengine.util.FloatList;
 import org.achartengine.util.MathHelper;
 
 import android.graphics.Canvas;
@@ -40,6 +41,11 @@ import android.graphics.RectF;
  * An abstract class to be implemented by the chart rendering classes.
  */
 public abstract class AbstractChart implements Serializable {
+  /** The path used by drawPath, reset and reused on each call. */
+  private transient Path mPath;
+  /** The clipped end points of a path segment. */
+  private final float[] mDrawPoints = new float[4];
+
   /**
    * The graphical representation of the chart.
    * 
@@ -219,7 +225,7 @@ public abstract class AbstractChart implements Serializable {
   }
 
   private static float[] calculateDrawPoints(float p1x, float p1y, float p2x, float p2y,
-      int screenHeight, int screenWidth) {
+      int screenHeight, int screenWidth, float[] result) {
     float drawP1x;
     float drawP1y;
     float drawP2x;
@@ -287,7 +293,26 @@ public abstract class AbstractChart implements Serializable {
       drawP2y = p2y;
     }
 
-    return new float[] { drawP1x, drawP1y, drawP2x, drawP2y };
+    result[0] = drawP1x;
+    result[1] = drawP1y;
+    result[2] = drawP2x;
+    result[3] = drawP2y;
+    return result;
+  }
+
+  /**
+   * Returns an empty path to be used for drawing. The same path is returned on
+   * each call, so it must not be kept after drawing.
+   * 
+   * @return the empty path
+   */
+  protected Path getPath() {
+    if (mPath == null) {
+      mPath = new Path();
+    } else {
+      mPath.reset();
+    }
+    return mPath;
   }
 
   /**
@@ -298,8 +323,8 @@ public abstract class AbstractChart implements Serializable {
    * @param paint the paint to be used for painting
    * @param circular if the path ends with the start point
    */
-  protected void drawPath(Canvas canvas, List<Float> points, Paint paint, boolean circular) {
-    Path path = new Path();
+  protected void drawPath(Canvas canvas, FloatList points, Paint paint, boolean circular) {
+    Path path = getPath();
     int height = canvas.getHeight();
     int width = canvas.getWidth();
 
@@ -308,7 +333,7 @@ public abstract class AbstractChart implements Serializable {
       return;
     }
     tempDrawPoints = calculateDrawPoints(points.get(0), points.get(1), points.get(2),
-        points.get(3), height, width);
+        points.get(3), height, width, mDrawPoints);
     path.moveTo(tempDrawPoints[0], tempDrawPoints[1]);
     path.lineTo(tempDrawPoints[2], tempDrawPoints[3]);
 
@@ -319,7 +344,7 @@ public abstract class AbstractChart implements Serializable {
         continue;
       }
       tempDrawPoints = calculateDrawPoints(points.get(i - 2), points.get(i - 1), points.get(i),
-          points.get(i + 1), height, width);
+          points.get(i + 1), height, width, mDrawPoints);
       if (!circular) {
         path.moveTo(tempDrawPoints[0], tempDrawPoints[1]);
       }
@@ -340,7 +365,7 @@ public abstract class AbstractChart implements Serializable {
    * @param circular if the path ends with the start point
    */
   protected void drawPath(Canvas canvas, float[] points, Paint paint, boolean circular) {
-    Path path = new Path();
+    Path path = getPath();
     int height = canvas.getHeight();
     int width = canvas.getWidth();
 
@@ -348,7 +373,8 @@ public abstract class AbstractChart implements Serializable {
     if (points.length < 4) {
       return;
     }
-    tempDrawPoints = calculateDrawPoints(points[0], points[1], points[2], points[3], height, width);
+    tempDrawPoints = calculateDrawPoints(points[0], points[1], points[2], points[3], height, width,
+        mDrawPoints);
     path.moveTo(tempDrawPoints[0], tempDrawPoints[1]);
     path.lineTo(tempDrawPoints[2], tempDrawPoints[3]);
 
@@ -359,7 +385,7 @@ public abstract class AbstractChart implements Serializable {
         continue;
       }
       tempDrawPoints = calculateDrawPoints(points[i - 2], points[i - 1], points[i], points[i + 1],
-          height, width);
+          height, width, mDrawPoints);
       if (!circular) {
         path.moveTo(tempDrawPoints[0], tempDrawPoints[1]);
       }
@@ -15,13 +15,13 @@
  */
 package org.achartengine.chart;
 
-import java.util.List;
-
 import org.achartengine.model.XYMultipleSeriesDataset;
 import org.achartengine.model.XYSeries;
 import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYSeriesRenderer;
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.FloatList;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
@@ -69,7 +69,7 @@ public class BarChart extends XYChart {
   }
 
   @Override
-  protected ClickableArea[] clickableAreasForPoints(List<Float> points, List<Double> values,
+  protected ClickableArea[] clickableAreasForPoints(FloatList points, DoubleList values,
       float yAxisValue, int seriesIndex, int startIndex) {
     int seriesNr = mDataset.getSeriesCount();
     int length = points.size();
@@ -102,7 +102,7 @@ public class BarChart extends XYChart {
    * @param startIndex the start index of the rendering points
    */
   @Override
-  public void drawSeries(Canvas canvas, Paint paint, List<Float> points,
+  public void drawSeries(Canvas canvas, Paint paint, FloatList points,
       XYSeriesRenderer seriesRenderer, float yAxisValue, int seriesIndex, int startIndex) {
     int seriesNr = mDataset.getSeriesCount();
     int length = points.size();
@@ -235,7 +235,7 @@ public class BarChart extends XYChart {
    * @param startIndex the start index of the rendering points
    */
   protected void drawChartValuesText(Canvas canvas, XYSeries series, XYSeriesRenderer renderer,
-      Paint paint, List<Float> points, int seriesIndex, int startIndex) {
+      Paint paint, FloatList points, int seriesIndex, int startIndex) {
     int seriesNr = mDataset.getSeriesCount();
     int length = points.size();
     float halfDiffX = getHalfDiffX(points, length, seriesNr);
@@ -293,7 +293,7 @@ public class BarChart extends XYChart {
    * @param seriesNr the series number
    * @return the calculated half-distance value
    */
-  protected float getHalfDiffX(List<Float> points, int length, int seriesNr) {
+  protected float getHalfDiffX(FloatList points, int length, int seriesNr) {
     float barWidth = mRenderer.getBarWidth();
     if (barWidth > 0) {
       return barWidth / 2;
@@ -15,13 +15,13 @@
  */
 package org.achartengine.chart;
 
-import java.util.List;
-
 import org.achartengine.model.XYMultipleSeriesDataset;
 import org.achartengine.model.XYValueSeries;
 import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYSeriesRenderer;
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.FloatList;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -66,7 +66,7 @@ public class BubbleChart extends XYChart {
    * @param startIndex the start index of the rendering points
    */
   @Override
-  public void drawSeries(Canvas canvas, Paint paint, List<Float> points,
+  public void drawSeries(Canvas canvas, Paint paint, FloatList points,
       XYSeriesRenderer renderer, float yAxisValue, int seriesIndex, int startIndex) {
     paint.setColor(renderer.getColor());
     paint.setStyle(Style.FILL);
@@ -81,7 +81,7 @@ public class BubbleChart extends XYChart {
   }
 
   @Override
-  protected ClickableArea[] clickableAreasForPoints(List<Float> points, List<Double> values,
+  protected ClickableArea[] clickableAreasForPoints(FloatList points, DoubleList values,
       float yAxisValue, int seriesIndex, int startIndex) {
     int length = points.size();
     XYValueSeries series = (XYValueSeries) mDataset.getSeriesAt(seriesIndex);
@@ -15,14 +15,14 @@
  */
 package org.achartengine.chart;
 
-import java.util.List;
-
 import org.achartengine.model.XYMultipleSeriesDataset;
 import org.achartengine.model.XYSeries;
 import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer.Orientation;
 import org.achartengine.renderer.XYSeriesRenderer;
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.FloatList;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -116,7 +116,7 @@ public class CombinedXYChart extends XYChart {
    * @param startIndex the start index of the rendering points
    */
   @Override
-  public void drawSeries(Canvas canvas, Paint paint, List<Float> points,
+  public void drawSeries(Canvas canvas, Paint paint, FloatList points,
       XYSeriesRenderer seriesRenderer, float yAxisValue, int seriesIndex, int startIndex) {
     mCharts[seriesIndex].setScreenR(getScreenR());
     mCharts[seriesIndex].setCalcRange(getCalcRange(mDataset.getSeriesAt(seriesIndex)
@@ -126,13 +126,18 @@ public class CombinedXYChart extends XYChart {
   }
 
   @Override
-  protected ClickableArea[] clickableAreasForPoints(List<Float> points, List<Double> values,
+  protected ClickableArea[] clickableAreasForPoints(FloatList points, DoubleList values,
       float yAxisValue, int seriesIndex, int startIndex) {
     return mCharts[seriesIndex].clickableAreasForPoints(points, values, yAxisValue, 0, startIndex);
   }
 
   @Override
-  protected void drawSeries(XYSeries series, Canvas canvas, Paint paint, List<Float> pointsList,
+  protected boolean isDecimationAllowed(XYSeriesRenderer renderer, int seriesIndex) {
+    return mCharts[seriesIndex].isDecimationAllowed(renderer, 0);
+  }
+
+  @Override
+  protected void drawSeries(XYSeries series, Canvas canvas, Paint paint, FloatList pointsList,
       XYSeriesRenderer seriesRenderer, float yAxisValue, int seriesIndex, Orientation or,
       int startIndex) {
     mCharts[seriesIndex].setScreenR(getScreenR());
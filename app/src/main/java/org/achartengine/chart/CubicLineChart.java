@@ -15,11 +15,11 @@
  */
 package org.achartengine.chart;
 
-import java.util.List;
-
 import org.achartengine.model.Point;
 import org.achartengine.model.XYMultipleSeriesDataset;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
+import org.achartengine.renderer.XYSeriesRenderer;
+import org.achartengine.util.FloatList;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -68,8 +68,8 @@ public class CubicLineChart extends LineChart {
   }
 
   @Override
-  protected void drawPath(Canvas canvas, List<Float> points, Paint paint, boolean circular) {
-    Path p = new Path();
+  protected void drawPath(Canvas canvas, FloatList points, Paint paint, boolean circular) {
+    Path p = getPath();
     float x = points.get(0);
     float y = points.get(1);
     p.moveTo(x, y);
@@ -98,7 +98,7 @@ public class CubicLineChart extends LineChart {
     canvas.drawPath(p, paint);
   }
 
-  private void calc(List<Float> points, Point result, int index1, int index2, final float multiplier) {
+  private void calc(FloatList points, Point result, int index1, int index2, final float multiplier) {
     float p1x = points.get(index1);
     float p1y = points.get(index1 + 1);
     float p2x = points.get(index2);
@@ -110,6 +110,19 @@ public class CubicLineChart extends LineChart {
     result.setY(p1y + (diffY * multiplier));
   }
 
+  /**
+   * Returns false, as the curve through the decimated points would differ from
+   * the one through all points.
+   * 
+   * @param renderer the series renderer
+   * @param seriesIndex the series index
+   * @return false
+   */
+  @Override
+  protected boolean isDecimationAllowed(XYSeriesRenderer renderer, int seriesIndex) {
+    return false;
+  }
+
   /**
    * Returns the chart type identifier.
    * 
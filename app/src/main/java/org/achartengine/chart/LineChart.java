@@ -15,14 +15,13 @@
  */
 package org.achartengine.chart;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.achartengine.model.XYMultipleSeriesDataset;
 import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYSeriesRenderer;
 import org.achartengine.renderer.XYSeriesRenderer.FillOutsideLine;
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.FloatList;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -39,6 +38,9 @@ public class LineChart extends XYChart {
   private static final int SHAPE_WIDTH = 30;
   /** The scatter chart to be used to draw the data points. */
   private ScatterChart pointsChart;
+  /** The scratch buffers for the filled areas, reused between draw calls. */
+  private final FloatList fillPointsBuffer = new FloatList();
+  private final FloatList boundsPointsBuffer = new FloatList();
 
   LineChart() {
   }
@@ -78,7 +80,7 @@ public class LineChart extends XYChart {
    * @param startIndex the start index of the rendering points
    */
   @Override
-  public void drawSeries(Canvas canvas, Paint paint, List<Float> points,
+  public void drawSeries(Canvas canvas, Paint paint, FloatList points,
       XYSeriesRenderer renderer, float yAxisValue, int seriesIndex, int startIndex) {
     float lineWidth = paint.getStrokeWidth();
     paint.setStrokeWidth(renderer.getLineWidth());
@@ -88,12 +90,13 @@ public class LineChart extends XYChart {
       if (fill.getType() != FillOutsideLine.Type.NONE) {
         paint.setColor(fill.getColor());
         // TODO: find a way to do area charts without duplicating data
-        List<Float> fillPoints = new ArrayList<Float>();
+        FloatList fillPoints = fillPointsBuffer;
+        fillPoints.clear();
         int[] range = fill.getFillRange();
         if (range == null) {
           fillPoints.addAll(points);
         } else {
-          fillPoints.addAll(points.subList(range[0] * 2, range[1] * 2));
+          fillPoints.addAll(points, range[0] * 2, range[1] * 2);
         }
 
         final float referencePoint;
@@ -119,7 +122,8 @@ public class LineChart extends XYChart {
         }
         if (fill.getType() == FillOutsideLine.Type.BOUNDS_ABOVE
             || fill.getType() == FillOutsideLine.Type.BOUNDS_BELOW) {
-          List<Float> boundsPoints = new ArrayList<Float>();
+          FloatList boundsPoints = boundsPointsBuffer;
+          boundsPoints.clear();
           boolean add = false;
           if (fill.getType() == FillOutsideLine.Type.BOUNDS_ABOVE
               && fillPoints.get(1) < referencePoint
@@ -186,7 +190,7 @@ public class LineChart extends XYChart {
   }
 
   @Override
-  protected ClickableArea[] clickableAreasForPoints(List<Float> points, List<Double> values,
+  protected ClickableArea[] clickableAreasForPoints(FloatList points, DoubleList values,
       float yAxisValue, int seriesIndex, int startIndex) {
     int length = points.size();
     ClickableArea[] ret = new ClickableArea[length / 2];
@@ -199,6 +203,27 @@ public class LineChart extends XYChart {
     return ret;
   }
 
+  /**
+   * Returns if the series may be decimated. This is the case unless the points
+   * are drawn or labeled, or the filling refers to point indices.
+   * 
+   * @param renderer the series renderer
+   * @param seriesIndex the series index
+   * @return if the series may be decimated
+   */
+  @Override
+  protected boolean isDecimationAllowed(XYSeriesRenderer renderer, int seriesIndex) {
+    if (isRenderPoints(renderer) || renderer.isDisplayChartValues()) {
+      return false;
+    }
+    for (FillOutsideLine fill : renderer.getFillOutsideLine()) {
+      if (fill.getFillRange() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Returns the legend shape width.
    * 
@@ -15,12 +15,12 @@
  */
 package org.achartengine.chart;
 
-import java.util.List;
-
 import org.achartengine.model.XYMultipleSeriesDataset;
 import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYSeriesRenderer;
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.FloatList;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
@@ -73,7 +73,7 @@ public class ScatterChart extends XYChart {
    * @param startIndex the start index of the rendering points
    */
   @Override
-  public void drawSeries(Canvas canvas, Paint paint, List<Float> points,
+  public void drawSeries(Canvas canvas, Paint paint, FloatList points,
       XYSeriesRenderer renderer, float yAxisValue, int seriesIndex, int startIndex) {
     paint.setColor(renderer.getColor());
     final float stroke = paint.getStrokeWidth();
@@ -123,7 +123,7 @@ public class ScatterChart extends XYChart {
   }
 
   @Override
-  protected ClickableArea[] clickableAreasForPoints(List<Float> points, List<Double> values,
+  protected ClickableArea[] clickableAreasForPoints(FloatList points, DoubleList values,
       float yAxisValue, int seriesIndex, int startIndex) {
     int length = points.size();
     ClickableArea[] ret = new ClickableArea[length / 2];
@@ -17,14 +17,16 @@ package org.achartengine.chart;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
 
+import org.achartengine.model.ChannelXYSeries;
+import org.achartengine.model.MultiChannelData;
+import org.achartengine.model.MultiResolutionData;
 import org.achartengine.model.Point;
 import org.achartengine.model.SeriesSelection;
 import org.achartengine.model.XYMultipleSeriesDataset;
@@ -35,9 +37,13 @@ import org.achartengine.renderer.SimpleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer;
 import org.achartengine.renderer.XYMultipleSeriesRenderer.Orientation;
 import org.achartengine.renderer.XYSeriesRenderer;
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.FloatList;
 import org.achartengine.util.MathHelper;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
@@ -45,6 +51,7 @@ import android.graphics.Paint.Cap;
 import android.graphics.Paint.Join;
 import android.graphics.Paint.Style;
 import android.graphics.PathEffect;
+import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Typeface;
@@ -70,12 +77,48 @@ public abstract class XYChart extends AbstractChart {
 
   /**
    * The clickable areas for all points. The array index is the series index,
-   * and the RectF list index is the point index in that series.
+   * and the RectF list index is the point index in that series. They are only
+   * built while drawing if clicks are enabled on the renderer.
    */
-  private Map<Integer, List<ClickableArea>> clickableAreas = new HashMap<Integer, List<ClickableArea>>();
+  private final Map<Integer, List<ClickableArea>> clickableAreas = new HashMap<Integer, List<ClickableArea>>();
 
   private LabelRenderer mXLabelRenderer=null;
 
+  /**
+   * The average number of points per pixel column above which a series is
+   * decimated before drawing.
+   */
+  private static final int DECIMATION_THRESHOLD = 4;
+  /** The decimator used for series with too many visible points. */
+  private final PixelColumnDecimator mDecimator = new PixelColumnDecimator();
+
+  /** The bucket summaries of the series being drawn from a summary level. */
+  private final DoubleList mSummaries = new DoubleList(256);
+  /** The screen coordinates of the points of the series being drawn. */
+  private final FloatList mPoints = new FloatList(256);
+  /** The values of the points of the series being drawn. */
+  private final DoubleList mValues = new DoubleList(256);
+  /** The series titles, reused between draw calls. */
+  private String[] mTitles = new String[0];
+  /** The axis ranges and scaling per scale, reused between draw calls. */
+  private double[] mMinX;
+  private double[] mMaxX;
+  private double[] mMinY;
+  private double[] mMaxY;
+  private boolean[] mIsMinXSet;
+  private boolean[] mIsMaxXSet;
+  private boolean[] mIsMinYSet;
+  private boolean[] mIsMaxYSet;
+  private double[] mXPixelsPerUnit;
+  private double[] mYPixelsPerUnit;
+  /** The screen position of the origin of the last drawn plot. */
+  private int mPlotLeft;
+  private int mPlotBottom;
+  /** If the series are drawn incrementally, see setStripChartEnabled. */
+  private boolean mStripChartEnabled = false;
+  /** The cached series bitmap of the strip chart mode. */
+  private StripChartCache mStripChart;
+
   public interface LabelRenderer {
     String getLabel(NumberFormat labelFormat, double value);
     void prepare(List<Double> xLabels);
@@ -120,7 +163,10 @@ public abstract class XYChart extends AbstractChart {
     int top = y + margins[0];
     int right = x + width - margins[3];
     int sLength = mDataset.getSeriesCount();
-    String[] titles = new String[sLength];
+    if (mTitles.length != sLength) {
+      mTitles = new String[sLength];
+    }
+    String[] titles = mTitles;
     for (int i = 0; i < sLength; i++) {
       titles[i] = mDataset.getSeriesAt(i).getTitle();
     }
@@ -159,7 +205,11 @@ public abstract class XYChart extends AbstractChart {
     if (mScale < 1) {
       mTranslate *= -1;
     }
-    mCenter = new Point((x + width) / 2, (y + height) / 2);
+    if (mCenter == null) {
+      mCenter = new Point();
+    }
+    mCenter.setX((x + width) / 2);
+    mCenter.setY((y + height) / 2);
     if (rotate) {
       transform(canvas, angle, false);
     }
@@ -172,14 +222,26 @@ public abstract class XYChart extends AbstractChart {
     if (maxScaleNumber < 0) {
       return;
     }
-    double[] minX = new double[maxScaleNumber];
-    double[] maxX = new double[maxScaleNumber];
-    double[] minY = new double[maxScaleNumber];
-    double[] maxY = new double[maxScaleNumber];
-    boolean[] isMinXSet = new boolean[maxScaleNumber];
-    boolean[] isMaxXSet = new boolean[maxScaleNumber];
-    boolean[] isMinYSet = new boolean[maxScaleNumber];
-    boolean[] isMaxYSet = new boolean[maxScaleNumber];
+    if (mMinX == null || mMinX.length != maxScaleNumber) {
+      mMinX = new double[maxScaleNumber];
+      mMaxX = new double[maxScaleNumber];
+      mMinY = new double[maxScaleNumber];
+      mMaxY = new double[maxScaleNumber];
+      mIsMinXSet = new boolean[maxScaleNumber];
+      mIsMaxXSet = new boolean[maxScaleNumber];
+      mIsMinYSet = new boolean[maxScaleNumber];
+      mIsMaxYSet = new boolean[maxScaleNumber];
+      mXPixelsPerUnit = new double[maxScaleNumber];
+      mYPixelsPerUnit = new double[maxScaleNumber];
+    }
+    double[] minX = mMinX;
+    double[] maxX = mMaxX;
+    double[] minY = mMinY;
+    double[] maxY = mMaxY;
+    boolean[] isMinXSet = mIsMinXSet;
+    boolean[] isMaxXSet = mIsMaxXSet;
+    boolean[] isMinYSet = mIsMinYSet;
+    boolean[] isMaxYSet = mIsMaxYSet;
 
     for (int i = 0; i < maxScaleNumber; i++) {
       minX[i] = mRenderer.getXAxisMin(i);
@@ -194,8 +256,8 @@ public abstract class XYChart extends AbstractChart {
         mCalcRange.put(i, new double[4]);
       }
     }
-    double[] xPixelsPerUnit = new double[maxScaleNumber];
-    double[] yPixelsPerUnit = new double[maxScaleNumber];
+    double[] xPixelsPerUnit = mXPixelsPerUnit;
+    double[] yPixelsPerUnit = mYPixelsPerUnit;
     for (int i = 0; i < sLength; i++) {
       XYSeries series = mDataset.getSeriesAt(i);
       int scale = series.getScaleNumber();
@@ -224,6 +286,8 @@ public abstract class XYChart extends AbstractChart {
       }
     }
     for (int i = 0; i < maxScaleNumber; i++) {
+      xPixelsPerUnit[i] = 0;
+      yPixelsPerUnit[i] = 0;
       if (maxX[i] - minX[i] != 0) {
         xPixelsPerUnit[i] = (right - left) / (maxX[i] - minX[i]);
       }
@@ -239,11 +303,28 @@ public abstract class XYChart extends AbstractChart {
     }
 
     boolean hasValues = false;
-    // use a linked list for these reasons:
-    // 1) Avoid a large contiguous memory allocation
-    // 2) We don't need random seeking, only sequential reading/writing, so
-    // linked list makes sense
-    clickableAreas = new HashMap<Integer, List<ClickableArea>>();
+    // the clickable areas are only built if clicks are enabled, otherwise
+    // getSeriesAndPointForScreenCoordinate searches the series directly
+    boolean clickEnabled = mRenderer.isClickEnabled();
+    if (!clickableAreas.isEmpty()) {
+      // the lists are reused, so that drawing doesn't allocate new ones
+      for (List<ClickableArea> clickableArea : clickableAreas.values()) {
+        clickableArea.clear();
+      }
+    }
+    mPlotLeft = left;
+    mPlotBottom = bottom;
+    boolean stripChart = mStripChartEnabled && !clickEnabled && or == Orientation.HORIZONTAL;
+    if (stripChart) {
+      if (mStripChart == null) {
+        mStripChart = new StripChartCache();
+      }
+      mStripChart.draw(canvas, paint, left, top, right, bottom, minX, maxX, minY, maxY,
+          xPixelsPerUnit, yPixelsPerUnit);
+    } else if (mStripChart != null) {
+      mStripChart.release();
+      mStripChart = null;
+    }
     for (int i = 0; i < sLength; i++) {
       XYSeries series = mDataset.getSeriesAt(i);
       int scale = series.getScaleNumber();
@@ -253,84 +334,21 @@ public abstract class XYChart extends AbstractChart {
 
       hasValues = true;
       XYSeriesRenderer seriesRenderer = (XYSeriesRenderer) mRenderer.getSeriesRendererAt(i);
-
-      // int originalValuesLength = series.getItemCount();
-      // int valuesLength = originalValuesLength;
-      // int length = valuesLength * 2;
-
-      List<Float> points = new ArrayList<Float>();
-      List<Double> values = new ArrayList<Double>();
-      float yAxisValue = Math.min(bottom, (float) (bottom + yPixelsPerUnit[scale] * minY[scale]));
-      LinkedList<ClickableArea> clickableArea = new LinkedList<ClickableArea>();
-
-      clickableAreas.put(i, clickableArea);
-
-      synchronized (series) {
-        SortedMap<Double, Double> range = series.getRange(minX[scale], maxX[scale],
-            seriesRenderer.isDisplayBoundingPoints());
-        int startIndex = -1;
-
-        for (Entry<Double, Double> value : range.entrySet()) {
-          double xValue = value.getKey();
-          double yValue = value.getValue();
-          if (startIndex < 0 && (!isNullValue(yValue) || isRenderNullValues())) {
-            startIndex = series.getIndexForKey(xValue);
-          }
-
-          // points.add((float) (left + xPixelsPerUnit[scale]
-          // * (value.getKey().floatValue() - minX[scale])));
-          // points.add((float) (bottom - yPixelsPerUnit[scale]
-          // * (value.getValue().floatValue() - minY[scale])));
-          values.add(value.getKey());
-          values.add(value.getValue());
-
-          if (!isNullValue(yValue)) {
-            points.add((float) (left + xPixelsPerUnit[scale] * (xValue - minX[scale])));
-            points.add((float) (bottom - yPixelsPerUnit[scale] * (yValue - minY[scale])));
-          } else if (isRenderNullValues()) {
-            points.add((float) (left + xPixelsPerUnit[scale] * (xValue - minX[scale])));
-            points.add((float) (bottom - yPixelsPerUnit[scale] * (-minY[scale])));
-          } else {
-            if (points.size() > 0) {
-              drawSeries(series, canvas, paint, points, seriesRenderer, yAxisValue, i, or,
-                  startIndex);
-              ClickableArea[] clickableAreasForSubSeries = clickableAreasForPoints(points, values,
-                  yAxisValue, i, startIndex);
-              clickableArea.addAll(Arrays.asList(clickableAreasForSubSeries));
-              points.clear();
-              values.clear();
-              startIndex = -1;
-            }
-            clickableArea.add(null);
-          }
-        }
-
-        int count = series.getAnnotationCount();
-        if (count > 0) {
-          paint.setColor(seriesRenderer.getAnnotationsColor());
-          paint.setTextSize(seriesRenderer.getAnnotationsTextSize());
-          paint.setTextAlign(seriesRenderer.getAnnotationsTextAlign());
-          Rect bound = new Rect();
-          for (int j = 0; j < count; j++) {
-            float xS = (float) (left + xPixelsPerUnit[scale]
-                * (series.getAnnotationX(j) - minX[scale]));
-            float yS = (float) (bottom - yPixelsPerUnit[scale]
-                * (series.getAnnotationY(j) - minY[scale]));
-            paint.getTextBounds(series.getAnnotationAt(j), 0, series.getAnnotationAt(j).length(),
-                bound);
-            if (xS < (xS + bound.width()) && yS < canvas.getHeight()) {
-              drawString(canvas, series.getAnnotationAt(j), xS, yS, paint);
-            }
+      if (!stripChart) {
+        List<ClickableArea> clickableArea = null;
+        if (clickEnabled) {
+          clickableArea = clickableAreas.get(i);
+          if (clickableArea == null) {
+            clickableArea = new ArrayList<ClickableArea>();
+            clickableAreas.put(i, clickableArea);
           }
         }
-
-        if (points.size() > 0) {
-          drawSeries(series, canvas, paint, points, seriesRenderer, yAxisValue, i, or, startIndex);
-          ClickableArea[] clickableAreasForSubSeries = clickableAreasForPoints(points, values,
-              yAxisValue, i, startIndex);
-          clickableArea.addAll(Arrays.asList(clickableAreasForSubSeries));
-        }
+        drawSeriesRange(canvas, paint, i, minX[scale], maxX[scale],
+            seriesRenderer.isDisplayBoundingPoints(), left, bottom, minX[scale],
+            xPixelsPerUnit[scale], minY[scale], yPixelsPerUnit[scale], or, clickableArea);
       }
+      drawAnnotations(canvas, paint, series, seriesRenderer, left, bottom, minX[scale],
+          xPixelsPerUnit[scale], minY[scale], yPixelsPerUnit[scale]);
     }
     // draw stuff over the margins such as data doesn't render on these areas
     drawBackground(mRenderer, canvas, x, bottom, width, height - bottom, paint, true,
@@ -474,6 +492,251 @@ public abstract class XYChart extends AbstractChart {
     }
   }
 
+  /**
+   * Draws the values of a series with X values between fromX and toX.
+   * 
+   * @param canvas the canvas to paint to
+   * @param paint the paint
+   * @param seriesIndex the series index
+   * @param fromX the minimum X value
+   * @param toX the maximum X value
+   * @param boundingPoints if the points just outside of the range are included
+   * @param left the screen X coordinate of minX
+   * @param bottom the screen Y coordinate of minY
+   * @param minX the X value at the left edge
+   * @param xPixelsPerUnit the amount of pixels per unit on the X axis
+   * @param minY the Y value at the bottom edge
+   * @param yPixelsPerUnit the amount of pixels per unit on the Y axis
+   * @param or the orientation
+   * @param clickableArea the list to add the clickable areas to, or null
+   */
+  private void drawSeriesRange(Canvas canvas, Paint paint, int seriesIndex, double fromX,
+      double toX, boolean boundingPoints, int left, int bottom, double minX,
+      double xPixelsPerUnit, double minY, double yPixelsPerUnit, Orientation or,
+      List<ClickableArea> clickableArea) {
+    XYSeries series = mDataset.getSeriesAt(seriesIndex);
+    XYSeriesRenderer seriesRenderer = (XYSeriesRenderer) mRenderer
+        .getSeriesRendererAt(seriesIndex);
+    FloatList points = mPoints;
+    DoubleList values = mValues;
+    points.clear();
+    values.clear();
+    float yAxisValue = Math.min(bottom, (float) (bottom + yPixelsPerUnit * minY));
+
+    synchronized (series.getLock()) {
+      if (isDecimationAllowed(seriesRenderer, seriesIndex)
+          && drawSummaries(canvas, paint, series, seriesRenderer, seriesIndex, fromX, toX, left,
+              bottom, minX, xPixelsPerUnit, minY, yPixelsPerUnit, yAxisValue, or, clickableArea)) {
+        return;
+      }
+
+      // Series of a store are read by index, which doesn't box the values or allocate a view.
+      ChannelXYSeries indexed = (series instanceof ChannelXYSeries) ? (ChannelXYSeries) series
+          : null;
+      Iterator<Entry<Double, Double>> entries = null;
+      int from;
+      int to;
+      if (indexed != null) {
+        from = indexed.getRangeFrom(fromX, boundingPoints);
+        to = indexed.getRangeTo(fromX, toX, boundingPoints);
+      } else {
+        SortedMap<Double, Double> range = series.getRange(fromX, toX, boundingPoints);
+        entries = range.entrySet().iterator();
+        from = 0;
+        to = range.size();
+      }
+      int startIndex = -1;
+      boolean decimate = isDecimationAllowed(seriesRenderer, seriesIndex)
+          && to - from > DECIMATION_THRESHOLD * Math.max(1, (toX - fromX) * xPixelsPerUnit);
+
+      for (int index = from; index < to; index++) {
+        double xValue;
+        double yValue;
+        if (entries == null) {
+          xValue = indexed.getX(index);
+          yValue = indexed.getY(index);
+        } else {
+          Entry<Double, Double> value = entries.next();
+          xValue = value.getKey();
+          yValue = value.getValue();
+        }
+        if (startIndex < 0 && (!isNullValue(yValue) || isRenderNullValues())) {
+          startIndex = (entries == null) ? index : series.getIndexForKey(xValue);
+        }
+
+        if (!isNullValue(yValue) || isRenderNullValues()) {
+          float xPixel = (float) (left + xPixelsPerUnit * (xValue - minX));
+          float yPixel = (float) (bottom - yPixelsPerUnit
+              * ((isNullValue(yValue) ? 0 : yValue) - minY));
+          if (decimate) {
+            mDecimator.add(xPixel, yPixel, xValue, yValue, points, values);
+          } else {
+            points.add(xPixel);
+            points.add(yPixel);
+            values.add(xValue);
+            values.add(yValue);
+          }
+        } else {
+          if (decimate) {
+            mDecimator.flush(points, values);
+          }
+          if (points.size() > 0) {
+            drawSeries(series, canvas, paint, points, seriesRenderer, yAxisValue, seriesIndex, or,
+                startIndex);
+            if (clickableArea != null) {
+              addClickableAreas(clickableArea, clickableAreasForPoints(points, values, yAxisValue,
+                  seriesIndex, startIndex));
+            }
+            points.clear();
+            values.clear();
+            startIndex = -1;
+          }
+          if (clickableArea != null) {
+            clickableArea.add(null);
+          }
+        }
+      }
+
+      if (decimate) {
+        mDecimator.flush(points, values);
+      }
+      if (points.size() > 0) {
+        drawSeries(series, canvas, paint, points, seriesRenderer, yAxisValue, seriesIndex, or,
+            startIndex);
+        if (clickableArea != null) {
+          addClickableAreas(clickableArea, clickableAreasForPoints(points, values, yAxisValue,
+              seriesIndex, startIndex));
+        }
+      }
+    }
+  }
+
+  /**
+   * Draws the values of a series with X values between fromX and toX from the
+   * coarsest summary level that still has at least one bucket per pixel column,
+   * if the series provides summary levels (see {@link MultiResolutionData}).
+   * Each bucket is drawn as its minimum and maximum in their original order.
+   * 
+   * @return true if the series was drawn, false if no summary level is coarse
+   *         enough and all values have to be drawn
+   */
+  private boolean drawSummaries(Canvas canvas, Paint paint, XYSeries series,
+      XYSeriesRenderer seriesRenderer, int seriesIndex, double fromX, double toX, int left,
+      int bottom, double minX, double xPixelsPerUnit, double minY, double yPixelsPerUnit,
+      float yAxisValue, Orientation or, List<ClickableArea> clickableArea) {
+    if (!(series instanceof ChannelXYSeries)) {
+      return false;
+    }
+    MultiChannelData store = ((ChannelXYSeries) series).getStore();
+    if (!(store instanceof MultiResolutionData)) {
+      return false;
+    }
+    MultiResolutionData data = (MultiResolutionData) store;
+
+    double pixels = Math.max(1, (toX - fromX) * xPixelsPerUnit);
+    int rows = data.lowerBound(toX) - data.lowerBound(fromX);
+    int level = -1;
+    for (int l = 0; l < data.getLevelCount(); l++) {
+      if (rows / data.getLevelFactor(l) >= pixels) {
+        level = l;
+      }
+    }
+    if (level < 0) {
+      return false;
+    }
+
+    DoubleList summaries = mSummaries;
+    summaries.clear();
+    int buckets = data.getSummaries(level, ((ChannelXYSeries) series).getChannel(), fromX, toX,
+        summaries);
+    if (buckets == 0) {
+      return true;
+    }
+    int startIndex = -1;
+    for (int b = 0; b < buckets; b++) {
+      int offset = b * MultiResolutionData.SUMMARY_SIZE;
+      double firstX = summaries.get(offset + MultiResolutionData.SUMMARY_FIRST_X);
+      double min = summaries.get(offset + MultiResolutionData.SUMMARY_MIN);
+      double max = summaries.get(offset + MultiResolutionData.SUMMARY_MAX);
+      if (isNullValue(min) || isNullValue(max)) {
+        // A bucket without values (e.g. the channel was not sampled) breaks the line.
+        drawSummarySegment(canvas, paint, series, seriesRenderer, seriesIndex, yAxisValue, or,
+            startIndex, clickableArea);
+        startIndex = -1;
+        continue;
+      }
+      if (startIndex < 0) {
+        startIndex = data.lowerBound(firstX);
+      }
+      boolean minFirst = summaries.get(offset + MultiResolutionData.SUMMARY_MIN_FIRST) != 0;
+      addDecimated(firstX, minFirst ? min : max, left, bottom, minX, xPixelsPerUnit, minY,
+          yPixelsPerUnit);
+      addDecimated(summaries.get(offset + MultiResolutionData.SUMMARY_LAST_X), minFirst ? max
+          : min, left, bottom, minX, xPixelsPerUnit, minY, yPixelsPerUnit);
+    }
+    drawSummarySegment(canvas, paint, series, seriesRenderer, seriesIndex, yAxisValue, or,
+        startIndex, clickableArea);
+    return true;
+  }
+
+  /**
+   * Draws the points of the buckets that were added since the last segment and
+   * clears them.
+   */
+  private void drawSummarySegment(Canvas canvas, Paint paint, XYSeries series,
+      XYSeriesRenderer seriesRenderer, int seriesIndex, float yAxisValue, Orientation or,
+      int startIndex, List<ClickableArea> clickableArea) {
+    FloatList points = mPoints;
+    DoubleList values = mValues;
+    mDecimator.flush(points, values);
+    if (points.size() > 0) {
+      drawSeries(series, canvas, paint, points, seriesRenderer, yAxisValue, seriesIndex, or,
+          startIndex);
+      if (clickableArea != null) {
+        addClickableAreas(clickableArea, clickableAreasForPoints(points, values, yAxisValue,
+            seriesIndex, startIndex));
+      }
+      points.clear();
+      values.clear();
+    }
+  }
+
+  private void addDecimated(double x, double y, int left, int bottom, double minX,
+      double xPixelsPerUnit, double minY, double yPixelsPerUnit) {
+    float xPixel = (float) (left + xPixelsPerUnit * (x - minX));
+    float yPixel = (float) (bottom - yPixelsPerUnit * (y - minY));
+    mDecimator.add(xPixel, yPixel, x, y, mPoints, mValues);
+  }
+
+  private void drawAnnotations(Canvas canvas, Paint paint, XYSeries series,
+      XYSeriesRenderer seriesRenderer, int left, int bottom, double minX, double xPixelsPerUnit,
+      double minY, double yPixelsPerUnit) {
+    synchronized (series.getLock()) {
+      int count = series.getAnnotationCount();
+      if (count > 0) {
+        paint.setColor(seriesRenderer.getAnnotationsColor());
+        paint.setTextSize(seriesRenderer.getAnnotationsTextSize());
+        paint.setTextAlign(seriesRenderer.getAnnotationsTextAlign());
+        Rect bound = new Rect();
+        for (int j = 0; j < count; j++) {
+          float xS = (float) (left + xPixelsPerUnit * (series.getAnnotationX(j) - minX));
+          float yS = (float) (bottom - yPixelsPerUnit * (series.getAnnotationY(j) - minY));
+          paint.getTextBounds(series.getAnnotationAt(j), 0, series.getAnnotationAt(j).length(),
+              bound);
+          if (xS < (xS + bound.width()) && yS < canvas.getHeight()) {
+            drawString(canvas, series.getAnnotationAt(j), xS, yS, paint);
+          }
+        }
+      }
+    }
+  }
+
+  private static void addClickableAreas(List<ClickableArea> list, ClickableArea[] areas) {
+    for (ClickableArea area : areas) {
+      list.add(area);
+    }
+  }
+
   protected List<Double> getXLabels(double min, double max, int count) {
     return MathHelper.getLabels(min, max, count);
   }
@@ -518,7 +781,7 @@ public abstract class XYChart extends AbstractChart {
    * @param or the orientation
    * @param startIndex the start index of the rendering points
    */
-  protected void drawSeries(XYSeries series, Canvas canvas, Paint paint, List<Float> pointsList,
+  protected void drawSeries(XYSeries series, Canvas canvas, Paint paint, FloatList pointsList,
       XYSeriesRenderer seriesRenderer, float yAxisValue, int seriesIndex, Orientation or,
       int startIndex) {
     BasicStroke stroke = seriesRenderer.getStroke();
@@ -581,7 +844,7 @@ public abstract class XYChart extends AbstractChart {
    * @param startIndex the start index of the rendering points
    */
   protected void drawChartValuesText(Canvas canvas, XYSeries series, XYSeriesRenderer renderer,
-      Paint paint, List<Float> points, int seriesIndex, int startIndex) {
+      Paint paint, FloatList points, int seriesIndex, int startIndex) {
     if (points.size() > 1) { // there are more than one point
       // record the first point's position
       float previousPointX = points.get(0);
@@ -905,30 +1168,85 @@ public abstract class XYChart extends AbstractChart {
     }
   }
 
+  /**
+   * Given screen coordinates, returns the series and point indexes of a chart
+   * element. If clicks are enabled, the clickable areas built while drawing are
+   * used. Otherwise the points are searched with the screen transform of the
+   * last draw call: a binary search finds the points within the selectable
+   * buffer on the X axis, and the first of them that is also within it on the Y
+   * axis is returned.
+   * 
+   * @param screenPoint the screen point
+   * @return the series and point indexes
+   */
   public SeriesSelection getSeriesAndPointForScreenCoordinate(final Point screenPoint) {
-    if (clickableAreas != null)
-      for (int seriesIndex = clickableAreas.size() - 1; seriesIndex >= 0; seriesIndex--) {
-        // series 0 is drawn first. Then series 1 is drawn on top, and series 2
-        // on top of that.
-        // we want to know what the user clicked on, so traverse them in the
-        // order they appear on the screen.
-        int pointIndex = 0;
-        if (clickableAreas.get(seriesIndex) != null) {
-          RectF rectangle;
-          for (ClickableArea area : clickableAreas.get(seriesIndex)) {
-            if (area != null) {
-              rectangle = area.getRect();
-              if (rectangle != null && rectangle.contains(screenPoint.getX(), screenPoint.getY())) {
-                return new SeriesSelection(seriesIndex, pointIndex, area.getX(), area.getY());
-              }
+    if (!mRenderer.isClickEnabled()) {
+      return findPointNear(screenPoint);
+    }
+    for (int seriesIndex = clickableAreas.size() - 1; seriesIndex >= 0; seriesIndex--) {
+      // series 0 is drawn first. Then series 1 is drawn on top, and series 2
+      // on top of that.
+      // we want to know what the user clicked on, so traverse them in the
+      // order they appear on the screen.
+      int pointIndex = 0;
+      if (clickableAreas.get(seriesIndex) != null) {
+        RectF rectangle;
+        for (ClickableArea area : clickableAreas.get(seriesIndex)) {
+          if (area != null) {
+            rectangle = area.getRect();
+            if (rectangle != null && rectangle.contains(screenPoint.getX(), screenPoint.getY())) {
+              return new SeriesSelection(seriesIndex, pointIndex, area.getX(), area.getY());
             }
-            pointIndex++;
           }
+          pointIndex++;
         }
       }
+    }
     return super.getSeriesAndPointForScreenCoordinate(screenPoint);
   }
 
+  private SeriesSelection findPointNear(Point screenPoint) {
+    if (mXPixelsPerUnit == null) {
+      // not drawn yet
+      return null;
+    }
+    int buffer = mRenderer.getSelectableBuffer();
+    for (int seriesIndex = mDataset.getSeriesCount() - 1; seriesIndex >= 0; seriesIndex--) {
+      // the series drawn last are on top
+      XYSeries series = mDataset.getSeriesAt(seriesIndex);
+      int scale = series.getScaleNumber();
+      if (scale >= mXPixelsPerUnit.length || mXPixelsPerUnit[scale] == 0) {
+        continue;
+      }
+      double fromX = mMinX[scale] + (screenPoint.getX() - buffer - mPlotLeft)
+          / mXPixelsPerUnit[scale];
+      double toX = mMinX[scale] + (screenPoint.getX() + buffer - mPlotLeft)
+          / mXPixelsPerUnit[scale];
+      synchronized (series.getLock()) {
+        int index = series.getIndexForKey(fromX);
+        if (index < 0) {
+          index = -index - 1;
+        }
+        int count = series.getItemCount();
+        for (; index < count; index++) {
+          double xValue = series.getX(index);
+          if (xValue > toX) {
+            break;
+          }
+          double yValue = series.getY(index);
+          if (isNullValue(yValue)) {
+            continue;
+          }
+          double yPixel = mPlotBottom - mYPixelsPerUnit[scale] * (yValue - mMinY[scale]);
+          if (Math.abs(yPixel - screenPoint.getY()) <= buffer) {
+            return new SeriesSelection(seriesIndex, index, xValue, yValue);
+          }
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * The graphical representation of a series.
    * 
@@ -940,7 +1258,7 @@ public abstract class XYChart extends AbstractChart {
    * @param seriesIndex the index of the series currently being drawn
    * @param startIndex the start index of the rendering points
    */
-  public abstract void drawSeries(Canvas canvas, Paint paint, List<Float> points,
+  public abstract void drawSeries(Canvas canvas, Paint paint, FloatList points,
       XYSeriesRenderer seriesRenderer, float yAxisValue, int seriesIndex, int startIndex);
 
   /**
@@ -953,8 +1271,8 @@ public abstract class XYChart extends AbstractChart {
    * @return an array of rectangles with the clickable area
    * @param startIndex the start index of the rendering points
    */
-  protected abstract ClickableArea[] clickableAreasForPoints(List<Float> points,
-      List<Double> values, float yAxisValue, int seriesIndex, int startIndex);
+  protected abstract ClickableArea[] clickableAreasForPoints(FloatList points,
+      DoubleList values, float yAxisValue, int seriesIndex, int startIndex);
 
   /**
    * Returns if the chart should display the null values.
@@ -974,6 +1292,20 @@ public abstract class XYChart extends AbstractChart {
     return false;
   }
 
+  /**
+   * Returns if the points of a series may be reduced to the first, minimum,
+   * maximum and last point of each pixel column before drawing. This is only
+   * allowed if the rendering of the series looks the same with these points,
+   * i.e. if the individual points are neither drawn nor labeled.
+   * 
+   * @param renderer the series renderer
+   * @param seriesIndex the series index
+   * @return if the series may be decimated
+   */
+  protected boolean isDecimationAllowed(XYSeriesRenderer renderer, int seriesIndex) {
+    return false;
+  }
+
   /**
    * Returns the default axis minimum.
    * 
@@ -999,10 +1331,334 @@ public abstract class XYChart extends AbstractChart {
    */
   public abstract String getChartType();
 
+  /**
+   * Sets if the chart is drawn as a strip chart. The series are then kept in a
+   * bitmap of the plot area. As long as the axes only move forward on the X
+   * axis, e.g. while new values scroll in, the bitmap is reused and only the
+   * values that were not drawn before are added to it. Any other change of the
+   * axes, the series or the chart size redraws the bitmap.
+   * 
+   * The strip chart mode is only used for horizontal charts without click
+   * selection.
+   * 
+   * @param enabled if the chart is drawn as a strip chart
+   */
+  public void setStripChartEnabled(boolean enabled) {
+    mStripChartEnabled = enabled;
+  }
+
+  /**
+   * Returns if the chart is drawn as a strip chart.
+   * 
+   * @return if the chart is drawn as a strip chart
+   */
+  public boolean isStripChartEnabled() {
+    return mStripChartEnabled;
+  }
+
   /**
    * Set an optional renderer for X labels.
    */
   public void setXLabelRenderer(LabelRenderer renderer) {
     this.mXLabelRenderer=renderer;
   }
+
+  /**
+   * Reduces consecutive points to at most four per pixel column: the first, the
+   * minimum, the maximum and the last one, in their original order. A line
+   * through these points covers the same pixels as a line through all of them.
+   */
+  private static class PixelColumnDecimator {
+    private static final int FIRST = 0;
+    private static final int MIN = 1;
+    private static final int MAX = 2;
+    private static final int LAST = 3;
+
+    /** The screen coordinates of the first, min, max and last point. */
+    private final float[] mPoints = new float[8];
+    /** The values of the first, min, max and last point. */
+    private final double[] mValues = new double[8];
+    /** The position of the first, min, max and last point in the column. */
+    private final int[] mOrder = new int[4];
+    /** The number of points in the current column, 0 if there is none. */
+    private int mCount = 0;
+    private int mColumn;
+
+    /**
+     * Adds a point. If it is in a new pixel column, the points of the previous
+     * column are appended to the given lists first.
+     */
+    public void add(float xPixel, float yPixel, double x, double y, FloatList points,
+        DoubleList values) {
+      int column = (int) Math.floor(xPixel);
+      if (mCount > 0 && column != mColumn) {
+        flush(points, values);
+      }
+      if (mCount == 0) {
+        mColumn = column;
+        set(FIRST, xPixel, yPixel, x, y);
+        set(MIN, xPixel, yPixel, x, y);
+        set(MAX, xPixel, yPixel, x, y);
+      } else if (yPixel < mPoints[MIN * 2 + 1]) {
+        set(MIN, xPixel, yPixel, x, y);
+      } else if (yPixel > mPoints[MAX * 2 + 1]) {
+        set(MAX, xPixel, yPixel, x, y);
+      }
+      set(LAST, xPixel, yPixel, x, y);
+      mCount++;
+    }
+
+    private void set(int which, float xPixel, float yPixel, double x, double y) {
+      mPoints[which * 2] = xPixel;
+      mPoints[which * 2 + 1] = yPixel;
+      mValues[which * 2] = x;
+      mValues[which * 2 + 1] = y;
+      mOrder[which] = mCount;
+    }
+
+    /**
+     * Appends the points of the current pixel column to the given lists.
+     */
+    public void flush(FloatList points, DoubleList values) {
+      if (mCount == 0) {
+        return;
+      }
+      emit(FIRST, points, values);
+      int first = mOrder[MIN] <= mOrder[MAX] ? MIN : MAX;
+      int second = first == MIN ? MAX : MIN;
+      int last = 0;
+      if (mOrder[first] > last) {
+        emit(first, points, values);
+        last = mOrder[first];
+      }
+      if (mOrder[second] > last) {
+        emit(second, points, values);
+        last = mOrder[second];
+      }
+      if (mOrder[LAST] > last) {
+        emit(LAST, points, values);
+      }
+      mCount = 0;
+    }
+
+    private void emit(int which, FloatList points, DoubleList values) {
+      points.add(mPoints[which * 2]);
+      points.add(mPoints[which * 2 + 1]);
+      values.add(mValues[which * 2]);
+      values.add(mValues[which * 2 + 1]);
+    }
+  }
+
+  /**
+   * The series bitmap of the strip chart mode.
+   * 
+   * The bitmap is used as a ring buffer along the X axis: instead of moving its
+   * content when the X axis scrolls, the column at the left edge of the plot
+   * moves forward and wraps around. The columns that scroll in are cleared and
+   * only the values that were not drawn before are added.
+   */
+  private class StripChartCache {
+    /** The relative difference up to which two scales are considered equal. */
+    private static final double SCALE_TOLERANCE = 1e-9;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    /** The X value at column 0 before wrapping around. */
+    private double mOriginX;
+    /** The column at the left edge of the plot before wrapping around. */
+    private int mShift;
+    /** The axes and series the bitmap was drawn with. */
+    private double mXPixelsPerUnit;
+    private double[] mMinY = new double[0];
+    private double[] mMaxY = new double[0];
+    private XYSeries[] mSeries = new XYSeries[0];
+    private SimpleSeriesRenderer[] mRenderers = new SimpleSeriesRenderer[0];
+    /** The first X value of each series when it was last drawn. */
+    private double[] mFirstX = new double[0];
+    /** The X value up to which each series has been drawn. */
+    private double[] mDrawnToX = new double[0];
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    /**
+     * Updates the bitmap and draws it to the plot area of the canvas.
+     */
+    public void draw(Canvas canvas, Paint paint, int left, int top, int right, int bottom,
+        double[] minX, double[] maxX, double[] minY, double[] maxY, double[] xPixelsPerUnit,
+        double[] yPixelsPerUnit) {
+      int width = right - left;
+      int height = bottom - top;
+      if (width <= 0 || height <= 0 || xPixelsPerUnit[0] == 0) {
+        return;
+      }
+      int shift = 0;
+      boolean redraw = !isValid(width, height, minX, minY, maxY, xPixelsPerUnit);
+      if (!redraw) {
+        shift = (int) Math.round((minX[0] - mOriginX) * mXPixelsPerUnit);
+        // scrolling back or by more than the width needs a redraw anyway
+        redraw = shift < mShift || shift - mShift >= width;
+      }
+      if (redraw) {
+        reset(width, height, minX[0], minY, maxY, xPixelsPerUnit[0]);
+        shift = 0;
+      } else if (shift > mShift) {
+        clearColumns(mShift + width, shift + width, width, height);
+      }
+      mShift = shift;
+
+      // the series are drawn at most twice, before and after the wrap around
+      int wrap = (shift / width + 1) * width;
+      for (int i = 0; i < mSeries.length; i++) {
+        XYSeries series = mSeries[i];
+        int scale = series.getScaleNumber();
+        if (series.getItemCount() == 0) {
+          continue;
+        }
+        double fromX = redraw ? minX[scale] : mDrawnToX[i];
+        boolean boundingPoints = redraw ? mRenderers[i].isDisplayBoundingPoints() : true;
+        double fromColumn = (fromX - mOriginX) * mXPixelsPerUnit;
+        double toColumn = (maxX[scale] - mOriginX) * mXPixelsPerUnit;
+        for (int offset = wrap - width; offset <= wrap; offset += width) {
+          if (toColumn > offset && fromColumn < offset + width) {
+            // only draw to the columns of the plot, the others belong to the
+            // other side of the wrap around
+            mCanvas.save();
+            mCanvas.clipRect(Math.max(shift, offset) - offset, 0,
+                Math.min(shift + width, offset + width) - offset, height);
+            drawSeriesRange(mCanvas, paint, i, fromX, maxX[scale], boundingPoints, -offset,
+                height, mOriginX, mXPixelsPerUnit, minY[scale], yPixelsPerUnit[scale],
+                Orientation.HORIZONTAL, null);
+            mCanvas.restore();
+          }
+        }
+        synchronized (series.getLock()) {
+          mFirstX[i] = series.getMinX();
+          mDrawnToX[i] = Math.min(maxX[scale], series.getMaxX());
+        }
+      }
+
+      int start = shift % width;
+      mSrc.set(start, 0, width, height);
+      mDst.set(left, top, right - start, bottom);
+      canvas.drawBitmap(mBitmap, mSrc, mDst, null);
+      if (start > 0) {
+        mSrc.set(0, 0, start, height);
+        mDst.set(right - start, top, right, bottom);
+        canvas.drawBitmap(mBitmap, mSrc, mDst, null);
+      }
+    }
+
+    /**
+     * Returns if the values in the bitmap can be reused.
+     */
+    private boolean isValid(int width, int height, double[] minX, double[] minY,
+        double[] maxY, double[] xPixelsPerUnit) {
+      if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height
+          || !isSameScale(mXPixelsPerUnit, xPixelsPerUnit[0]) || mMinY.length != minY.length) {
+        return false;
+      }
+      for (int i = 0; i < minY.length; i++) {
+        if (mMinY[i] != minY[i] || mMaxY[i] != maxY[i]) {
+          return false;
+        }
+      }
+      int count = mDataset.getSeriesCount();
+      if (mSeries.length != count) {
+        return false;
+      }
+      for (int i = 0; i < count; i++) {
+        XYSeries series = mDataset.getSeriesAt(i);
+        if (series != mSeries[i] || mRenderer.getSeriesRendererAt(i) != mRenderers[i]) {
+          return false;
+        }
+        synchronized (series.getLock()) {
+          if (series.getItemCount() == 0) {
+            if (mDrawnToX[i] != -Double.MAX_VALUE) {
+              // the series has been cleared
+              return false;
+            }
+          } else if (series.getMaxX() < mDrawnToX[i]) {
+            // the series has been cleared and refilled
+            return false;
+          } else if (series.getMinX() != mFirstX[i]
+              && series.getMinX() > minX[series.getScaleNumber()]) {
+            // visible values have been removed
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean isSameScale(double a, double b) {
+      return Math.abs(a - b) <= SCALE_TOLERANCE * Math.abs(a);
+    }
+
+    /**
+     * Clears the bitmap and stores the axes and series it is drawn with.
+     */
+    private void reset(int width, int height, double minX, double[] minY, double[] maxY,
+        double xPixelsPerUnit) {
+      if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+        release();
+        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+      } else {
+        mBitmap.eraseColor(Color.TRANSPARENT);
+      }
+      mOriginX = minX;
+      mXPixelsPerUnit = xPixelsPerUnit;
+      if (mMinY.length != minY.length) {
+        mMinY = new double[minY.length];
+        mMaxY = new double[maxY.length];
+      }
+      System.arraycopy(minY, 0, mMinY, 0, minY.length);
+      System.arraycopy(maxY, 0, mMaxY, 0, maxY.length);
+
+      int count = mDataset.getSeriesCount();
+      if (mSeries.length != count) {
+        mSeries = new XYSeries[count];
+        mRenderers = new SimpleSeriesRenderer[count];
+        mFirstX = new double[count];
+        mDrawnToX = new double[count];
+      }
+      for (int i = 0; i < count; i++) {
+        mSeries[i] = mDataset.getSeriesAt(i);
+        mRenderers[i] = mRenderer.getSeriesRendererAt(i);
+        mFirstX[i] = MathHelper.NULL_VALUE;
+        mDrawnToX[i] = -Double.MAX_VALUE;
+      }
+    }
+
+    /**
+     * Clears the columns from 'from' (inclusive) to 'to' (exclusive), before
+     * wrapping around.
+     */
+    private void clearColumns(int from, int to, int width, int height) {
+      int start = from % width;
+      int end = start + (to - from);
+      clearRect(start, Math.min(end, width), height);
+      if (end > width) {
+        clearRect(0, end - width, height);
+      }
+    }
+
+    private void clearRect(int left, int right, int height) {
+      mCanvas.save();
+      mCanvas.clipRect(left, 0, right, height);
+      mCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+      mCanvas.restore();
+    }
+
+    /**
+     * Frees the bitmap.
+     */
+    public void release() {
+      if (mBitmap != null) {
+        mBitmap.recycle();
+        mBitmap = null;
+        mCanvas = null;
+      }
+    }
+  }
 }
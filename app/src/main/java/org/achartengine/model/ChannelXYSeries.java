@@ -0,0 +1,258 @@
+package org.achartengine.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Read-only XYSeries view on one channel of a {@link MultiChannelData}, e. g. a {@link MultiChannelXYStore}.
+ *
+ * The x values are shared with all other channels of the store. Values are added through the store, so the
+ * modifying methods of XYSeries throw an UnsupportedOperationException.
+ *
+ * @author Johannes Rieke
+ */
+public class ChannelXYSeries extends XYSeries {
+
+    private final MultiChannelData store;
+    private final int channel;
+
+    public ChannelXYSeries(MultiChannelData store, int channel, String title) {
+        super(title);
+        this.store = store;
+        this.channel = channel;
+    }
+
+    public MultiChannelData getStore() {
+        return store;
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the store, which is also locked by all methods that modify the values.
+     */
+    @Override
+    public Object getLock() {
+        return store;
+    }
+
+    @Override
+    public void add(double x, double y) {
+        throw new UnsupportedOperationException("Values are added through the MultiChannelXYStore");
+    }
+
+    @Override
+    public void add(int index, double x, double y) {
+        throw new UnsupportedOperationException("Values are added through the MultiChannelXYStore");
+    }
+
+    @Override
+    public void remove(int index) {
+        throw new UnsupportedOperationException("Values are removed through the MultiChannelXYStore");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("Values are removed through the MultiChannelXYStore");
+    }
+
+    @Override
+    public double getX(int index) {
+        return store.getX(index);
+    }
+
+    @Override
+    public double getY(int index) {
+        return store.getY(channel, index);
+    }
+
+    @Override
+    public int getItemCount() {
+        // The XYSeries constructor calls this before 'store' is assigned.
+        return (store == null) ? 0 : store.getItemCount();
+    }
+
+    @Override
+    public int getIndexForKey(double key) {
+        return store.getIndexForKey(key);
+    }
+
+    /**
+     * Returns a view of the values between 'start' (inclusive) and 'stop' (exclusive). No values are copied, so
+     * the view must only be used while holding {@link #getLock()}.
+     */
+    @Override
+    public SortedMap<Double, Double> getRange(double start, double stop, boolean beforeAfterPoints) {
+        synchronized (store) {
+            return new RangeView(getRangeFrom(start, beforeAfterPoints),
+                    getRangeTo(start, stop, beforeAfterPoints));
+        }
+    }
+
+    /**
+     * Returns the index of the first value of {@link #getRange}, so the values can be read by index with
+     * {@link #getX(int)} and {@link #getY(int)} without allocating a view. Must be called while holding
+     * {@link #getLock()}.
+     */
+    public int getRangeFrom(double start, boolean beforeAfterPoints) {
+        int from = store.lowerBound(start);
+        // Include one point before the range, so the line doesn't start after the start of the screen.
+        return (beforeAfterPoints && from > 0) ? from - 1 : from;
+    }
+
+    /**
+     * Returns the index after the last value of {@link #getRange}, see {@link #getRangeFrom}.
+     */
+    public int getRangeTo(double start, double stop, boolean beforeAfterPoints) {
+        int to = Math.max(store.lowerBound(start), store.lowerBound(stop));
+        // Include one point after the range, so the line doesn't end before the end of the screen.
+        return (beforeAfterPoints && to < store.getItemCount()) ? to + 1 : to;
+    }
+
+    @Override
+    public double getMinX() {
+        return store.getMinX();
+    }
+
+    @Override
+    public double getMaxX() {
+        return store.getMaxX();
+    }
+
+    @Override
+    public double getMinY() {
+        return store.getMinY(channel);
+    }
+
+    @Override
+    public double getMaxY() {
+        return store.getMaxY(channel);
+    }
+
+
+    /**
+     * SortedMap view of the values with indices from 'from' (inclusive) to 'to' (exclusive).
+     * Its iterators return the same, reused entry object on each call to next() to avoid allocations.
+     */
+    private class RangeView extends AbstractMap<Double, Double> implements SortedMap<Double, Double> {
+
+        private final int from;
+        private final int to;
+
+        RangeView(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Comparator<? super Double> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedMap<Double, Double> subMap(Double fromKey, Double toKey) {
+            int subFrom = clamp(store.lowerBound(fromKey));
+            return new RangeView(subFrom, Math.max(subFrom, clamp(store.lowerBound(toKey))));
+        }
+
+        @Override
+        public SortedMap<Double, Double> headMap(Double toKey) {
+            return new RangeView(from, clamp(store.lowerBound(toKey)));
+        }
+
+        @Override
+        public SortedMap<Double, Double> tailMap(Double fromKey) {
+            return new RangeView(clamp(store.lowerBound(fromKey)), to);
+        }
+
+        private int clamp(int index) {
+            return Math.max(from, Math.min(to, index));
+        }
+
+        @Override
+        public Double firstKey() {
+            if (from == to)
+                throw new NoSuchElementException();
+            return getX(from);
+        }
+
+        @Override
+        public Double lastKey() {
+            if (from == to)
+                throw new NoSuchElementException();
+            return getX(to - 1);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public Set<Entry<Double, Double>> entrySet() {
+            return new AbstractSet<Entry<Double, Double>>() {
+                @Override
+                public Iterator<Entry<Double, Double>> iterator() {
+                    return new Iterator<Entry<Double, Double>>() {
+                        private int index = from;
+                        private final ValueEntry entry = new ValueEntry();
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < to;
+                        }
+
+                        @Override
+                        public Entry<Double, Double> next() {
+                            if (index >= to)
+                                throw new NoSuchElementException();
+                            entry.x = getX(index);
+                            entry.y = getY(index);
+                            index++;
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return to - from;
+                }
+            };
+        }
+    }
+
+    private static class ValueEntry implements Map.Entry<Double, Double> {
+
+        double x;
+        double y;
+
+        @Override
+        public Double getKey() {
+            return x;
+        }
+
+        @Override
+        public Double getValue() {
+            return y;
+        }
+
+        @Override
+        public Double setValue(Double value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
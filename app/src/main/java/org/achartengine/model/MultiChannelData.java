@@ -0,0 +1,41 @@
+package org.achartengine.model;
+
+/**
+ * Read access to samples of several channels that share the same x values, which have to be in ascending order.
+ * {@link ChannelXYSeries} plots one channel of it.
+ *
+ * Implementations that can be modified must synchronize all methods on the object itself, which is used as the
+ * lock of the series.
+ *
+ * @author Johannes Rieke
+ */
+public interface MultiChannelData {
+
+    public int getChannelCount();
+
+    public int getItemCount();
+
+    public double getX(int index);
+
+    public double getY(int channel, int index);
+
+    public double getMinX();
+
+    public double getMaxX();
+
+    public double getMinY(int channel);
+
+    public double getMaxY(int channel);
+
+    /**
+     * Binary search for the first index whose x value is greater than or equal to 'x'.
+     * @return The index, or the item count if all x values are smaller
+     */
+    public int lowerBound(double x);
+
+    /**
+     * Returns the index of 'x' like {@link java.util.Collections#binarySearch}: the index if it is found,
+     * (-(insertion point) - 1) otherwise.
+     */
+    public int getIndexForKey(double x);
+}
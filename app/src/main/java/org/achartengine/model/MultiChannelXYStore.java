@@ -0,0 +1,310 @@
+package org.achartengine.model;
+
+import org.achartengine.util.DoubleList;
+import org.achartengine.util.MathHelper;
+
+import java.io.Serializable;
+
+/**
+ * Stores samples of several channels that share the same x values (e. g. time stamps).
+ *
+ * There is one x column and one y column per channel. All columns are double arrays that are used as ring buffers,
+ * so appending a row and dropping the oldest one once the fixed length is reached are O(1) and do not allocate.
+ * X values have to be added in ascending order, so that range and index lookups can use a binary search.
+ *
+ * Each channel can be plotted through the XYSeries returned by {@link #getSeries(int)}. All methods synchronize on
+ * the store, which is also the lock returned by {@link ChannelXYSeries#getLock()}.
+ *
+ * The store also keeps summary levels with the minimum, maximum and mean of buckets of 16, 256 and 4096 rows.
+ * They are updated when a row is added, which takes constant time, and let the chart draw a long range from a few
+ * buckets instead of all rows.
+ *
+ * @author Johannes Rieke
+ */
+public class MultiChannelXYStore implements MultiResolutionData, Serializable {
+
+    private static final int INITIAL_CAPACITY = 256;
+    /** A padding value that will be added when adding values with the same X. */
+    private static final double PADDING = 0.000000000001;
+    /** The number of rows per bucket of each summary level. */
+    private static final int[] LEVEL_FACTORS = {16, 256, 4096};
+
+    private final int numChannels;
+    private double[] xs = new double[0];
+    private double[][] ys;
+    private int head = 0;  // Physical index of the oldest row.
+    private int count = 0;
+    private long firstIndex = 0;  // Absolute index of the oldest row, counted since the last call to clear().
+
+    private int fixedLength = Integer.MAX_VALUE;
+
+    private final double[] minY;
+    private final double[] maxY;
+
+    private final SummaryLevel[] levels;
+
+    private final ChannelXYSeries[] series;
+
+    /**
+     * @param titles The titles of the channel series, one per channel
+     */
+    public MultiChannelXYStore(String[] titles) {
+        numChannels = titles.length;
+        ys = new double[numChannels][0];
+        minY = new double[numChannels];
+        maxY = new double[numChannels];
+        resetRangeY();
+
+        levels = new SummaryLevel[LEVEL_FACTORS.length];
+        for (int l = 0; l < levels.length; l++)
+            levels[l] = new SummaryLevel(LEVEL_FACTORS[l], numChannels);
+
+        series = new ChannelXYSeries[numChannels];
+        for (int i = 0; i < numChannels; i++)
+            series[i] = new ChannelXYSeries(this, i, titles[i]);
+    }
+
+    @Override
+    public int getChannelCount() {
+        return numChannels;
+    }
+
+    /**
+     * @return An XYSeries view on the values of 'channel'
+     */
+    public ChannelXYSeries getSeries(int channel) {
+        return series[channel];
+    }
+
+    public synchronized int getFixedLength() {
+        return fixedLength;
+    }
+
+    /**
+     * Set the maximum number of rows. If more rows are added, the oldest ones are dropped.
+     * @param fixedLength The maximum number of rows, or 0 for no limit
+     */
+    public synchronized void setFixedLength(int fixedLength) {
+        if (fixedLength <= 0)
+            this.fixedLength = Integer.MAX_VALUE;
+        else
+            this.fixedLength = fixedLength;
+
+        int newCount = Math.min(count, this.fixedLength);
+        int newCapacity = Math.max(newCount, Math.min(xs.length, this.fixedLength));
+        if (newCount != count || newCapacity != xs.length)
+            reallocate(newCapacity, count - newCount);
+    }
+
+    /**
+     * Copy the newest rows into columns of the given capacity, dropping the 'skip' oldest rows.
+     */
+    private void reallocate(int capacity, int skip) {
+        int newCount = count - skip;
+        xs = copyColumn(xs, capacity, skip, newCount);
+        for (int c = 0; c < numChannels; c++)
+            ys[c] = copyColumn(ys[c], capacity, skip, newCount);
+        head = 0;
+        count = newCount;
+        firstIndex += skip;
+        dropSummaries();
+    }
+
+    private double[] copyColumn(double[] column, int capacity, int skip, int length) {
+        double[] newColumn = new double[capacity];
+        if (length > 0) {
+            int start = physicalIndex(skip);
+            int firstPart = Math.min(length, column.length - start);
+            System.arraycopy(column, start, newColumn, 0, firstPart);
+            System.arraycopy(column, 0, newColumn, firstPart, length - firstPart);
+        }
+        return newColumn;
+    }
+
+    private int physicalIndex(int index) {
+        int physical = head + index;
+        if (physical >= xs.length)
+            physical -= xs.length;
+        return physical;
+    }
+
+    /**
+     * Append a row.
+     * @param x The x value, which must not be smaller than the last one
+     * @param values The y values, one per channel
+     */
+    public synchronized void add(double x, double[] values) {
+        // Keep the x values strictly ascending, like XYSeries does for equal keys.
+        if (count > 0) {
+            double lastX = xs[physicalIndex(count - 1)];
+            if (x <= lastX)
+                x = lastX + PADDING;
+        }
+
+        if (count == xs.length) {
+            if (count < fixedLength) {
+                reallocate((int) Math.min((long) fixedLength, Math.max(INITIAL_CAPACITY, 2L * count)), 0);
+            } else {
+                // Buffer is full, overwrite the oldest row.
+                head = physicalIndex(1);
+                count--;
+                firstIndex++;
+                dropSummaries();
+            }
+        }
+
+        int physical = physicalIndex(count);
+        xs[physical] = x;
+        for (int c = 0; c < numChannels; c++) {
+            double y = values[c];
+            ys[c][physical] = y;
+            if (y < minY[c])
+                minY[c] = y;
+            if (y > maxY[c])
+                maxY[c] = y;
+        }
+        for (SummaryLevel level : levels)
+            level.add(firstIndex + count, x, values);
+        count++;
+    }
+
+    private void dropSummaries() {
+        for (SummaryLevel level : levels)
+            level.dropBefore(firstIndex);
+    }
+
+    /**
+     * Remove all rows.
+     */
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+        firstIndex = 0;
+        resetRangeY();
+        for (SummaryLevel level : levels)
+            level.clear();
+    }
+
+    private void resetRangeY() {
+        for (int c = 0; c < numChannels; c++) {
+            minY[c] = MathHelper.NULL_VALUE;
+            maxY[c] = -MathHelper.NULL_VALUE;
+        }
+    }
+
+    @Override
+    public synchronized int getItemCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized double getX(int index) {
+        return xs[physicalIndex(index)];
+    }
+
+    @Override
+    public synchronized double getY(int channel, int index) {
+        return ys[channel][physicalIndex(index)];
+    }
+
+    /**
+     * Copy the y values of all channels at 'index' into 'values'.
+     * @return The x value at 'index'
+     */
+    public synchronized double getRow(int index, double[] values) {
+        int physical = physicalIndex(index);
+        for (int c = 0; c < numChannels; c++)
+            values[c] = ys[c][physical];
+        return xs[physical];
+    }
+
+    /**
+     * Copy all rows into a new store, e. g. to read them in a background thread without holding the lock of this
+     * store while the measurement goes on. The copy has no fixed length and is only as large as needed.
+     */
+    public synchronized MultiChannelXYStore snapshot() {
+        String[] titles = new String[numChannels];
+        for (int c = 0; c < numChannels; c++)
+            titles[c] = series[c].getTitle();
+
+        MultiChannelXYStore copy = new MultiChannelXYStore(titles);
+        copy.xs = copyColumn(xs, count, 0, count);
+        for (int c = 0; c < numChannels; c++) {
+            copy.ys[c] = copyColumn(ys[c], count, 0, count);
+            copy.minY[c] = minY[c];
+            copy.maxY[c] = maxY[c];
+        }
+        copy.count = count;
+
+        double[] values = new double[numChannels];
+        for (int i = 0; i < count; i++) {
+            double x = copy.getRow(i, values);
+            for (SummaryLevel level : copy.levels)
+                level.add(i, x, values);
+        }
+        return copy;
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    @Override
+    public int getLevelFactor(int level) {
+        return levels[level].getFactor();
+    }
+
+    @Override
+    public synchronized int getSummaries(int level, int channel, double fromX, double toX, DoubleList out) {
+        return levels[level].getSummaries(channel, fromX, toX, out);
+    }
+
+    @Override
+    public synchronized double getMinX() {
+        return (count == 0) ? MathHelper.NULL_VALUE : xs[head];
+    }
+
+    @Override
+    public synchronized double getMaxX() {
+        return (count == 0) ? -MathHelper.NULL_VALUE : xs[physicalIndex(count - 1)];
+    }
+
+    /**
+     * @return The minimum y value of 'channel' since the last call to {@link #clear()}
+     */
+    @Override
+    public synchronized double getMinY(int channel) {
+        return minY[channel];
+    }
+
+    /**
+     * @return The maximum y value of 'channel' since the last call to {@link #clear()}
+     */
+    @Override
+    public synchronized double getMaxY(int channel) {
+        return maxY[channel];
+    }
+
+    @Override
+    public synchronized int lowerBound(double x) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xs[physicalIndex(mid)] < x)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    @Override
+    public synchronized int getIndexForKey(double x) {
+        int index = lowerBound(x);
+        if (index < count && xs[physicalIndex(index)] == x)
+            return index;
+        return -index - 1;
+    }
+}
@@ -0,0 +1,43 @@
+package org.achartengine.model;
+
+import org.achartengine.util.DoubleList;
+
+/**
+ * {@link MultiChannelData} that also keeps summary levels, in which consecutive rows are combined to buckets of
+ * {@link #getLevelFactor(int)} rows each. Drawing the buckets of a coarse level instead of all rows keeps zooming
+ * out over long recordings fast.
+ *
+ * Each bucket is described by {@link #SUMMARY_SIZE} values, at the offsets SUMMARY_*.
+ *
+ * @author Johannes Rieke
+ */
+public interface MultiResolutionData extends MultiChannelData {
+
+    /** The x value of the first row in the bucket. */
+    public static final int SUMMARY_FIRST_X = 0;
+    /** The x value of the last row in the bucket. */
+    public static final int SUMMARY_LAST_X = 1;
+    public static final int SUMMARY_MIN = 2;
+    public static final int SUMMARY_MAX = 3;
+    public static final int SUMMARY_MEAN = 4;
+    /** 1 if the minimum occurs before the maximum in the bucket, 0 otherwise. */
+    public static final int SUMMARY_MIN_FIRST = 5;
+    public static final int SUMMARY_SIZE = 6;
+
+    /**
+     * @return The number of summary levels, from fine to coarse
+     */
+    public int getLevelCount();
+
+    /**
+     * @return The number of rows that are combined to one bucket in 'level'
+     */
+    public int getLevelFactor(int level);
+
+    /**
+     * Append the summaries of the buckets of 'level' between 'fromX' and 'toX' to 'out', including one bucket
+     * before and after the range.
+     * @return The number of buckets appended
+     */
+    public int getSummaries(int level, int channel, double fromX, double toX, DoubleList out);
+}
@@ -0,0 +1,194 @@
+package org.achartengine.model;
+
+import org.achartengine.util.DoubleList;
+
+import java.io.Serializable;
+
+/**
+ * One summary level of a {@link MultiChannelXYStore}: the minimum, maximum and mean of each channel for buckets of
+ * 'factor' consecutive rows. The buckets are aligned to the absolute index of the rows (counted since the store was
+ * cleared) and kept in ring buffers, like the rows themselves. NaN values (e. g. of channels that were not measured)
+ * are left out; the summary of a bucket without any other value is NaN.
+ *
+ * @author Johannes Rieke
+ */
+class SummaryLevel implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int factor;
+    private final int numChannels;
+
+    private double[] firstX = new double[0];
+    private double[] lastX = new double[0];
+    private double[][] min;
+    private double[][] max;
+    private double[][] sum;
+    private boolean[][] minFirst;
+    private int[][] counts;  // The number of values that are not NaN.
+
+    private int head = 0;  // Physical index of the oldest bucket.
+    private int count = 0;
+    private long firstBucket = 0;  // Absolute index of the oldest bucket.
+
+    SummaryLevel(int factor, int numChannels) {
+        this.factor = factor;
+        this.numChannels = numChannels;
+        min = new double[numChannels][0];
+        max = new double[numChannels][0];
+        sum = new double[numChannels][0];
+        minFirst = new boolean[numChannels][0];
+        counts = new int[numChannels][0];
+    }
+
+    int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Add a row to the last bucket, or to a new one if it starts a bucket.
+     * @param index The absolute index of the row, one more than that of the last added row
+     */
+    void add(long index, double x, double[] values) {
+        long bucket = index / factor;
+        if (count == 0 || bucket != firstBucket + count - 1) {
+            if (count == 0)
+                firstBucket = bucket;
+            if (count == firstX.length)
+                reallocate(Math.max(INITIAL_CAPACITY, 2 * count));
+
+            int physical = physicalIndex(count);
+            firstX[physical] = x;
+            lastX[physical] = x;
+            for (int c = 0; c < numChannels; c++) {
+                double y = values[c];
+                boolean valid = !Double.isNaN(y);
+                min[c][physical] = y;
+                max[c][physical] = y;
+                sum[c][physical] = valid ? y : 0;
+                minFirst[c][physical] = true;
+                counts[c][physical] = valid ? 1 : 0;
+            }
+            count++;
+        } else {
+            int physical = physicalIndex(count - 1);
+            lastX[physical] = x;
+            for (int c = 0; c < numChannels; c++) {
+                double y = values[c];
+                if (Double.isNaN(y))
+                    continue;
+                if (counts[c][physical] == 0) {
+                    min[c][physical] = y;
+                    max[c][physical] = y;
+                } else if (y < min[c][physical]) {
+                    min[c][physical] = y;
+                    minFirst[c][physical] = false;
+                } else if (y > max[c][physical]) {
+                    max[c][physical] = y;
+                    minFirst[c][physical] = true;
+                }
+                sum[c][physical] += y;
+                counts[c][physical]++;
+            }
+        }
+    }
+
+    /**
+     * Drop the buckets that only contain rows before the absolute index 'index'. The oldest remaining bucket may
+     * still include a few dropped rows.
+     */
+    void dropBefore(long index) {
+        while (count > 0 && (firstBucket + 1) * factor <= index) {
+            head = physicalIndex(1);
+            count--;
+            firstBucket++;
+        }
+    }
+
+    void clear() {
+        head = 0;
+        count = 0;
+        firstBucket = 0;
+    }
+
+    private void reallocate(int capacity) {
+        // Copy the columns that are not double arrays first, they need the physical indices of the old capacity.
+        for (int c = 0; c < numChannels; c++) {
+            boolean[] newMinFirst = new boolean[capacity];
+            int[] newCounts = new int[capacity];
+            for (int i = 0; i < count; i++) {
+                int physical = physicalIndex(i);
+                newMinFirst[i] = minFirst[c][physical];
+                newCounts[i] = counts[c][physical];
+            }
+            minFirst[c] = newMinFirst;
+            counts[c] = newCounts;
+        }
+
+        firstX = copyColumn(firstX, capacity);
+        lastX = copyColumn(lastX, capacity);
+        for (int c = 0; c < numChannels; c++) {
+            min[c] = copyColumn(min[c], capacity);
+            max[c] = copyColumn(max[c], capacity);
+            sum[c] = copyColumn(sum[c], capacity);
+        }
+        head = 0;
+    }
+
+    private double[] copyColumn(double[] column, int capacity) {
+        double[] newColumn = new double[capacity];
+        if (count > 0) {
+            int firstPart = Math.min(count, column.length - head);
+            System.arraycopy(column, head, newColumn, 0, firstPart);
+            System.arraycopy(column, 0, newColumn, firstPart, count - firstPart);
+        }
+        return newColumn;
+    }
+
+    private int physicalIndex(int index) {
+        int physical = head + index;
+        if (physical >= firstX.length)
+            physical -= firstX.length;
+        return physical;
+    }
+
+    /**
+     * See {@link MultiResolutionData#getSummaries}.
+     */
+    int getSummaries(int channel, double fromX, double toX, DoubleList out) {
+        // The first bucket that ends at or after 'fromX'.
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastX[physicalIndex(mid)] < fromX)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        int from = Math.max(0, low - 1);
+
+        // The first bucket that starts after 'toX'.
+        high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (firstX[physicalIndex(mid)] <= toX)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        int to = Math.min(count, low + 1);
+
+        for (int i = from; i < to; i++) {
+            int physical = physicalIndex(i);
+            out.add(firstX[physical]);
+            out.add(lastX[physical]);
+            out.add(min[channel][physical]);
+            out.add(max[channel][physical]);
+            int valid = counts[channel][physical];
+            out.add((valid == 0) ? Double.NaN : sum[channel][physical] / valid);
+            out.add(minFirst[channel][physical] ? 1 : 0);
+        }
+        return Math.max(0, to - from);
+    }
+}
@@ -306,6 +306,16 @@ public class XYSeries implements Serializable {
     return mXY.subMap(start, stop);
   }
 
+  /**
+   * Returns the object to synchronize on while reading several values of the
+   * series, so that they are not modified in between.
+   * 
+   * @return the lock object
+   */
+  public Object getLock() {
+    return this;
+  }
+
   public int getIndexForKey(double key) {
     return mXY.getIndexForKey(key);
   }
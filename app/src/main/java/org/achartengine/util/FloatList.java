@@ -0,0 +1,75 @@
+package org.achartengine.util;
+
+/**
+ * A growable list of primitive floats.
+ *
+ * Used as a reusable scratch buffer for screen coordinates: clear() keeps the backing array, so refilling the list
+ * on every frame does not allocate once it has grown to the needed size, and no values are boxed.
+ *
+ * @author Johannes Rieke
+ */
+public class FloatList {
+
+    private float[] values;
+    private int size = 0;
+
+    public FloatList() {
+        this(16);
+    }
+
+    public FloatList(int capacity) {
+        values = new float[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float get(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return values[index];
+    }
+
+    public void set(int index, float value) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        values[index] = value;
+    }
+
+    public void add(float value) {
+        ensureCapacity(size + 1);
+        values[size++] = value;
+    }
+
+    /**
+     * Append the values of 'other' from 'from' (inclusive) to 'to' (exclusive).
+     */
+    public void addAll(FloatList other, int from, int to) {
+        if (from < 0 || to > other.size || from > to)
+            throw new IndexOutOfBoundsException("Range: " + from + " to " + to + ", size: " + other.size);
+        int length = to - from;
+        ensureCapacity(size + length);
+        System.arraycopy(other.values, from, values, size, length);
+        size += length;
+    }
+
+    public void addAll(FloatList other) {
+        addAll(other, 0, other.size);
+    }
+
+    /**
+     * Remove all values, but keep the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            float[] newValues = new float[Math.max(capacity, 2 * values.length)];
+            System.arraycopy(values, 0, newValues, 0, size);
+            values = newValues;
+        }
+    }
+}